@@ -0,0 +1,63 @@
+package com.github.jenkaby.chessaibattle.chess;
+
+import com.github.jenkaby.chessaibattle.chess.exception.ChessRuleException;
+import com.github.jenkaby.chessaibattle.chess.movement.ChessMovement;
+import com.github.jenkaby.chessaibattle.model.Player;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of mixed SAN (pawn pushes, captures, disambiguation, castling, promotions, checks)
+ * against the positions the moves were played in. Parsing leaves the board unchanged, so positions are reused.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParseMovementBenchmark {
+
+    private final BoardService boardService = new BoardService();
+    private Board[] boards;
+    private String[] notations;
+    private Player[] players;
+    private int next;
+
+    @Setup
+    public void setUp() throws ChessRuleException {
+        List<Board> boardList = new ArrayList<>();
+        List<String> notationList = new ArrayList<>();
+        for (List<String> game : RecordedGames.notations()) {
+            Board board = new Board();
+            for (String notation : game) {
+                boardList.add(board.copy());
+                notationList.add(notation);
+                boardService.parseMovement(notation, board, board.getCurrentTurn()).applyTo(board);
+                board.switchTurn();
+            }
+        }
+        boards = boardList.toArray(Board[]::new);
+        notations = notationList.toArray(String[]::new);
+        players = boardList.stream().map(Board::getCurrentTurn).toArray(Player[]::new);
+    }
+
+    @Benchmark
+    public ChessMovement parseMovement() throws ChessRuleException {
+        int i = next;
+        next = (i + 1) % notations.length;
+        return boardService.parseMovement(notations[i], boards[i], players[i]);
+    }
+}
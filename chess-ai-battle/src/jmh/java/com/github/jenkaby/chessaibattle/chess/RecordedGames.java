@@ -0,0 +1,61 @@
+package com.github.jenkaby.chessaibattle.chess;
+
+import com.github.jenkaby.chessaibattle.model.Player;
+import com.github.jenkaby.chessaibattle.persistence.entity.Movement;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Recorded 100-ply games in SAN, one game per line, loaded from {@code games/100-ply-games.txt}
+ */
+final class RecordedGames {
+
+    private static final String RESOURCE = "/games/100-ply-games.txt";
+
+    private RecordedGames() {
+    }
+
+    static List<List<String>> notations() {
+        try (InputStream in = RecordedGames.class.getResourceAsStream(RESOURCE)) {
+            if (in == null) {
+                throw new IllegalStateException("Resource not found: " + RESOURCE);
+            }
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            List<List<String>> games = new ArrayList<>();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank()) {
+                    games.add(List.of(line.strip().split("\\s+")));
+                }
+            }
+            return games;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static List<List<Movement>> movements() {
+        return notations().stream()
+                .map(RecordedGames::toMovements)
+                .toList();
+    }
+
+    private static List<Movement> toMovements(List<String> notations) {
+        List<Movement> movements = new ArrayList<>(notations.size());
+        for (int i = 0; i < notations.size(); i++) {
+            movements.add(Movement.builder()
+                    .lapId("benchmark")
+                    .player(i % 2 == 0 ? Player.WHITE : Player.BLACK)
+                    .notation(notations.get(i))
+                    .build());
+        }
+        return movements;
+    }
+}
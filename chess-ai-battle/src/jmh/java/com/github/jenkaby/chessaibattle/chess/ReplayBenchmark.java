@@ -0,0 +1,44 @@
+package com.github.jenkaby.chessaibattle.chess;
+
+import com.github.jenkaby.chessaibattle.persistence.entity.Movement;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full replay of a recorded 100-ply game, as done for every board render and cache miss
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReplayBenchmark {
+
+    private final BoardService boardService = new BoardService();
+    private List<List<Movement>> games;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        games = RecordedGames.movements();
+    }
+
+    @Benchmark
+    public Board getCurrentBoard() {
+        List<Movement> game = games.get(next);
+        next = (next + 1) % games.size();
+        return boardService.getCurrentBoard(game);
+    }
+}
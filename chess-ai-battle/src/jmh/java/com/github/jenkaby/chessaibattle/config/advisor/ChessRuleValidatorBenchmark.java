@@ -0,0 +1,52 @@
+package com.github.jenkaby.chessaibattle.config.advisor;
+
+import com.github.jenkaby.chessaibattle.chess.Board;
+import com.github.jenkaby.chessaibattle.chess.BoardService;
+import com.github.jenkaby.chessaibattle.model.Player;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Validation of a proposed move, as done for every model response.
+ * The validator applies the move to the board it is given, so each call works on a fresh copy
+ * (see BoardBenchmark.copy for the copy cost alone).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChessRuleValidatorBenchmark {
+
+    private final ChessRuleValidator validator = new ChessRuleValidator(new BoardService());
+    private Board middleGame;
+
+    @Setup
+    public void setUp() {
+        middleGame = new BoardService().getCurrentBoardFromNotations(List.of(
+                "e4", "e5", "Nf3", "Nc6", "Bb5", "a6", "Ba4", "Nf6", "O-O", "Be7",
+                "Re1", "b5", "Bb3", "d6", "c3", "O-O", "h3", "Nb8", "d4", "Nbd7"));
+    }
+
+    @Benchmark
+    public ChessRuleValidator.ValidationResponse validLegalMove() {
+        return validator.validate(middleGame.copy(), Player.BLACK, "Bb7");
+    }
+
+    @Benchmark
+    public ChessRuleValidator.ValidationResponse illegalMove() {
+        return validator.validate(middleGame.copy(), Player.BLACK, "Qxd4");
+    }
+}
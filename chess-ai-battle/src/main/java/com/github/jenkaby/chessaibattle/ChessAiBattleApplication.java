@@ -2,12 +2,16 @@ package com.github.jenkaby.chessaibattle;
 
 import com.github.jenkaby.chessaibattle.config.AppFeaturesProperties;
 import com.github.jenkaby.chessaibattle.config.CorsProperties;
+import com.github.jenkaby.chessaibattle.config.LapSchedulerProperties;
+import com.github.jenkaby.chessaibattle.config.ModelRateLimitProperties;
+import com.github.jenkaby.chessaibattle.config.WriteBehindProperties;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 
 @SpringBootApplication
-@EnableConfigurationProperties({CorsProperties.class, AppFeaturesProperties.class})
+@EnableConfigurationProperties({CorsProperties.class, AppFeaturesProperties.class, LapSchedulerProperties.class,
+        ModelRateLimitProperties.class, WriteBehindProperties.class})
 public class ChessAiBattleApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,142 @@
+package com.github.jenkaby.chessaibattle.chess;
+
+import com.github.jenkaby.chessaibattle.model.Player;
+
+/**
+ * Square indexing and bit helpers for the bitboard representation.
+ * Square index is {@code row * 8 + col}, so a8 = 0 and h1 = 63 (row 0 is the 8th rank, as in {@link Position})
+ */
+public final class Bitboards {
+
+    public static final int NO_SQUARE = -1;
+
+    public static final long EMPTY = 0L;
+
+    // Ray directions; squares grow towards the 1st rank and the h-file
+    public static final int NORTH = 0;
+    public static final int SOUTH = 1;
+    public static final int EAST = 2;
+    public static final int WEST = 3;
+    public static final int NORTH_EAST = 4;
+    public static final int NORTH_WEST = 5;
+    public static final int SOUTH_EAST = 6;
+    public static final int SOUTH_WEST = 7;
+
+    private static final int[] DIRECTION_ROW = {-1, 1, 0, 0, -1, -1, 1, 1};
+    private static final int[] DIRECTION_COL = {0, 0, 1, -1, 1, -1, 1, -1};
+
+    private static final long[] KNIGHT_ATTACKS = new long[64];
+    private static final long[] KING_ATTACKS = new long[64];
+    private static final long[][] PAWN_ATTACKS = new long[2][64];
+    private static final long[][] RAYS = new long[8][64];
+
+    static {
+        int[][] knightJumps = {{-2, -1}, {-2, 1}, {-1, -2}, {-1, 2}, {1, -2}, {1, 2}, {2, -1}, {2, 1}};
+        for (int square = 0; square < 64; square++) {
+            int row = row(square);
+            int col = col(square);
+            for (int[] jump : knightJumps) {
+                KNIGHT_ATTACKS[square] |= bitIfOnBoard(row + jump[0], col + jump[1]);
+            }
+            for (int direction = 0; direction < 8; direction++) {
+                KING_ATTACKS[square] |= bitIfOnBoard(row + DIRECTION_ROW[direction], col + DIRECTION_COL[direction]);
+                for (int r = row + DIRECTION_ROW[direction], c = col + DIRECTION_COL[direction];
+                     r >= 0 && r < 8 && c >= 0 && c < 8;
+                     r += DIRECTION_ROW[direction], c += DIRECTION_COL[direction]) {
+                    RAYS[direction][square] |= bit(square(r, c));
+                }
+            }
+            PAWN_ATTACKS[Player.WHITE.ordinal()][square] = bitIfOnBoard(row - 1, col - 1) | bitIfOnBoard(row - 1, col + 1);
+            PAWN_ATTACKS[Player.BLACK.ordinal()][square] = bitIfOnBoard(row + 1, col - 1) | bitIfOnBoard(row + 1, col + 1);
+        }
+    }
+
+    private Bitboards() {
+    }
+
+    private static long bitIfOnBoard(int row, int col) {
+        return row >= 0 && row < 8 && col >= 0 && col < 8 ? bit(square(row, col)) : EMPTY;
+    }
+
+    public static int square(int row, int col) {
+        return (row << 3) | col;
+    }
+
+    public static int square(Position position) {
+        return position.getIndex();
+    }
+
+    public static int row(int square) {
+        return square >>> 3;
+    }
+
+    public static int col(int square) {
+        return square & 7;
+    }
+
+    public static long bit(int square) {
+        return 1L << square;
+    }
+
+    /**
+     * Index of the least significant set bit, i.e. the first square of the set
+     */
+    public static int first(long bitboard) {
+        return Long.numberOfTrailingZeros(bitboard);
+    }
+
+    /**
+     * Index of a piece set for the given type and owner (0..11)
+     */
+    public static int pieceIndex(PieceType type, Player owner) {
+        return owner.ordinal() * 6 + type.ordinal();
+    }
+
+    public static long knightAttacks(int square) {
+        return KNIGHT_ATTACKS[square];
+    }
+
+    public static long kingAttacks(int square) {
+        return KING_ATTACKS[square];
+    }
+
+    /**
+     * Squares attacked by a pawn of the given owner standing on the square
+     */
+    public static long pawnAttacks(Player owner, int square) {
+        return PAWN_ATTACKS[owner.ordinal()][square];
+    }
+
+    public static long bishopAttacks(int square, long occupied) {
+        return rayAttacks(NORTH_EAST, square, occupied) | rayAttacks(NORTH_WEST, square, occupied)
+                | rayAttacks(SOUTH_EAST, square, occupied) | rayAttacks(SOUTH_WEST, square, occupied);
+    }
+
+    public static long rookAttacks(int square, long occupied) {
+        return rayAttacks(NORTH, square, occupied) | rayAttacks(SOUTH, square, occupied)
+                | rayAttacks(EAST, square, occupied) | rayAttacks(WEST, square, occupied);
+    }
+
+    public static long queenAttacks(int square, long occupied) {
+        return bishopAttacks(square, occupied) | rookAttacks(square, occupied);
+    }
+
+    /**
+     * Squares reachable along one ray, up to and including the first blocker
+     */
+    public static long rayAttacks(int direction, int square, long occupied) {
+        long ray = RAYS[direction][square];
+        long blockers = ray & occupied;
+        if (blockers == 0) {
+            return ray;
+        }
+        int blocker = isPositive(direction)
+                ? Long.numberOfTrailingZeros(blockers)
+                : 63 - Long.numberOfLeadingZeros(blockers);
+        return ray & ~RAYS[direction][blocker];
+    }
+
+    private static boolean isPositive(int direction) {
+        return direction == SOUTH || direction == EAST || direction == SOUTH_EAST || direction == SOUTH_WEST;
+    }
+}
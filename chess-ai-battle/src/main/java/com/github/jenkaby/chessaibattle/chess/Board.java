@@ -2,17 +2,101 @@ package com.github.jenkaby.chessaibattle.chess;
 
 import com.github.jenkaby.chessaibattle.model.Player;
 
+import java.util.Arrays;
+
+import static com.github.jenkaby.chessaibattle.chess.Bitboards.NO_SQUARE;
+
 /**
- * Represents a chess board with pieces and provides visualization
+ * Represents a chess board with pieces and provides visualization.
+ * <p>
+ * The position is kept as twelve piece bitboards (one per piece type and color) plus
+ * occupancy masks, mirrored by a 64-entry mailbox for O(1) square lookups.
+ * Side to move, castling rights and en-passant square are kept as primitives.
  */
 public class Board {
-    private final Piece[][] squares;
-    private Player currentTurn;
+
+    public static final int WHITE_KING_SIDE = 1;
+    public static final int WHITE_QUEEN_SIDE = 1 << 1;
+    public static final int BLACK_KING_SIDE = 1 << 2;
+    public static final int BLACK_QUEEN_SIDE = 1 << 3;
+    public static final int ALL_CASTLING_RIGHTS = WHITE_KING_SIDE | WHITE_QUEEN_SIDE | BLACK_KING_SIDE | BLACK_QUEEN_SIDE;
+
+    /**
+     * Maximum number of moves that can be made with {@link #makeMove(int)} before they are taken back
+     */
+    public static final int MAX_UNDO_DEPTH = 256;
+
+    /**
+     * Castling rights that survive a piece leaving or arriving at the square
+     */
+    private static final int[] CASTLING_MASK = new int[64];
+
+    static {
+        Arrays.fill(CASTLING_MASK, ALL_CASTLING_RIGHTS);
+        CASTLING_MASK[Bitboards.square(7, 4)] &= ~(WHITE_KING_SIDE | WHITE_QUEEN_SIDE);
+        CASTLING_MASK[Bitboards.square(7, 7)] &= ~WHITE_KING_SIDE;
+        CASTLING_MASK[Bitboards.square(7, 0)] &= ~WHITE_QUEEN_SIDE;
+        CASTLING_MASK[Bitboards.square(0, 4)] &= ~(BLACK_KING_SIDE | BLACK_QUEEN_SIDE);
+        CASTLING_MASK[Bitboards.square(0, 7)] &= ~BLACK_KING_SIDE;
+        CASTLING_MASK[Bitboards.square(0, 0)] &= ~BLACK_QUEEN_SIDE;
+    }
+
+    private final long[] pieceSets = new long[12];
+    private final long[] colorSets = new long[2];
+    private long occupied;
+    private final Piece[] squares = new Piece[64];
+    private final int[] kingSquares = {NO_SQUARE, NO_SQUARE};
+
+    private int sideToMove;
+    private int castlingRights;
+    private int enPassantSquare = NO_SQUARE;
+    private int halfmoveClock;
+    private int fullmoveNumber = 1;
+    private long zobristKey;
+
+    // allocated on the first makeMove, so copies used only for replay stay small
+    private int[] undoState;
+    private long[] undoKeys;
+    private int undoDepth;
 
     public Board() {
-        this.squares = new Piece[8][8];
-        this.currentTurn = Player.WHITE;
         initializeBoard();
+        setCastlingRights(ALL_CASTLING_RIGHTS);
+    }
+
+    /**
+     * Create a board from a position description, see {@link Fen#parse(String)}
+     *
+     * @param squares pieces indexed by square, null for empty squares
+     */
+    Board(Piece[] squares, Player sideToMove, int castlingRights, int enPassantSquare,
+          int halfmoveClock, int fullmoveNumber) {
+        for (int square = 0; square < 64; square++) {
+            if (squares[square] != null) {
+                put(square, squares[square]);
+            }
+        }
+        this.sideToMove = sideToMove.ordinal();
+        this.castlingRights = castlingRights;
+        this.enPassantSquare = enPassantSquare;
+        this.halfmoveClock = halfmoveClock;
+        this.fullmoveNumber = fullmoveNumber;
+        this.zobristKey = computeZobristKey();
+    }
+
+    private Board(Board source) {
+        System.arraycopy(source.pieceSets, 0, this.pieceSets, 0, pieceSets.length);
+        System.arraycopy(source.colorSets, 0, this.colorSets, 0, colorSets.length);
+        this.occupied = source.occupied;
+        this.kingSquares[0] = source.kingSquares[0];
+        this.kingSquares[1] = source.kingSquares[1];
+        System.arraycopy(source.squares, 0, this.squares, 0, squares.length);
+        this.sideToMove = source.sideToMove;
+        this.castlingRights = source.castlingRights;
+        this.enPassantSquare = source.enPassantSquare;
+        this.halfmoveClock = source.halfmoveClock;
+        this.fullmoveNumber = source.fullmoveNumber;
+        this.zobristKey = source.zobristKey;
     }
 
     /**
@@ -21,74 +105,303 @@ public class Board {
     private void initializeBoard() {
         // Place pawns
         for (int col = 0; col < 8; col++) {
-            squares[1][col] = new Piece(PieceType.PAWN, Player.BLACK);
-            squares[6][col] = new Piece(PieceType.PAWN, Player.WHITE);
+            put(Bitboards.square(1, col), Piece.of(PieceType.PAWN, Player.BLACK));
+            put(Bitboards.square(6, col), Piece.of(PieceType.PAWN, Player.WHITE));
+        }
+
+        PieceType[] backRank = {PieceType.ROOK, PieceType.KNIGHT, PieceType.BISHOP, PieceType.QUEEN,
+                PieceType.KING, PieceType.BISHOP, PieceType.KNIGHT, PieceType.ROOK};
+        for (int col = 0; col < 8; col++) {
+            put(Bitboards.square(0, col), Piece.of(backRank[col], Player.BLACK));
+            put(Bitboards.square(7, col), Piece.of(backRank[col], Player.WHITE));
+        }
+    }
+
+    public Piece getPiece(Position position) {
+        return squares[position.getIndex()];
+    }
+
+    public Piece getPiece(int square) {
+        return squares[square];
+    }
+
+    public void setPiece(Position position, Piece piece) {
+        int square = position.getIndex();
+        clear(square);
+        if (piece != null) {
+            put(square, piece);
         }
+        setCastlingRights(castlingRights & CASTLING_MASK[square]);
+    }
 
-        // Place rooks
-        squares[0][0] = new Piece(PieceType.ROOK, Player.BLACK);
-        squares[0][7] = new Piece(PieceType.ROOK, Player.BLACK);
-        squares[7][0] = new Piece(PieceType.ROOK, Player.WHITE);
-        squares[7][7] = new Piece(PieceType.ROOK, Player.WHITE);
+    public void removePiece(Position position) {
+        int square = position.getIndex();
+        clear(square);
+        setCastlingRights(castlingRights & CASTLING_MASK[square]);
+    }
 
-        // Place knights
-        squares[0][1] = new Piece(PieceType.KNIGHT, Player.BLACK);
-        squares[0][6] = new Piece(PieceType.KNIGHT, Player.BLACK);
-        squares[7][1] = new Piece(PieceType.KNIGHT, Player.WHITE);
-        squares[7][6] = new Piece(PieceType.KNIGHT, Player.WHITE);
+    private void put(int square, Piece piece) {
+        long bit = Bitboards.bit(square);
+        int pieceIndex = Bitboards.pieceIndex(piece.getType(), piece.getOwner());
+        pieceSets[pieceIndex] |= bit;
+        zobristKey ^= Zobrist.piece(pieceIndex, square);
+        colorSets[piece.getOwner().ordinal()] |= bit;
+        occupied |= bit;
+        squares[square] = piece;
+        if (piece.getType() == PieceType.KING) {
+            kingSquares[piece.getOwner().ordinal()] = square;
+        }
+    }
 
-        // Place bishops
-        squares[0][2] = new Piece(PieceType.BISHOP, Player.BLACK);
-        squares[0][5] = new Piece(PieceType.BISHOP, Player.BLACK);
-        squares[7][2] = new Piece(PieceType.BISHOP, Player.WHITE);
-        squares[7][5] = new Piece(PieceType.BISHOP, Player.WHITE);
+    private void clear(int square) {
+        Piece piece = squares[square];
+        if (piece == null) {
+            return;
+        }
+        long bit = Bitboards.bit(square);
+        int pieceIndex = Bitboards.pieceIndex(piece.getType(), piece.getOwner());
+        pieceSets[pieceIndex] &= ~bit;
+        zobristKey ^= Zobrist.piece(pieceIndex, square);
+        colorSets[piece.getOwner().ordinal()] &= ~bit;
+        occupied &= ~bit;
+        squares[square] = null;
+        if (piece.getType() == PieceType.KING && kingSquares[piece.getOwner().ordinal()] == square) {
+            kingSquares[piece.getOwner().ordinal()] = NO_SQUARE;
+        }
+    }
 
-        // Place queens
-        squares[0][3] = new Piece(PieceType.QUEEN, Player.BLACK);
-        squares[7][3] = new Piece(PieceType.QUEEN, Player.WHITE);
+    /**
+     * Bitboard of all pieces of the given type and owner
+     */
+    public long getPieces(PieceType type, Player owner) {
+        return pieceSets[Bitboards.pieceIndex(type, owner)];
+    }
 
-        // Place kings
-        squares[0][4] = new Piece(PieceType.KING, Player.BLACK);
-        squares[7][4] = new Piece(PieceType.KING, Player.WHITE);
+    /**
+     * Bitboard of all pieces of the given owner
+     */
+    public long getOccupancy(Player owner) {
+        return colorSets[owner.ordinal()];
     }
 
-    public Piece getPiece(Position position) {
-        return squares[position.getRow()][position.getCol()];
+    /**
+     * Bitboard of all occupied squares
+     */
+    public long getOccupied() {
+        return occupied;
     }
 
-    public void setPiece(Position position, Piece piece) {
-        squares[position.getRow()][position.getCol()] = piece;
+    /**
+     * Square of the king of the given owner or {@link Bitboards#NO_SQUARE} if there is no king on the board
+     */
+    public int getKingSquare(Player owner) {
+        return kingSquares[owner.ordinal()];
     }
 
-    public void removePiece(Position position) {
-        squares[position.getRow()][position.getCol()] = null;
+    /**
+     * Check whether any piece of the given player attacks the square
+     */
+    public boolean isSquareAttacked(int square, Player by) {
+        int color = by.ordinal();
+        if ((Bitboards.pawnAttacks(by == Player.WHITE ? Player.BLACK : Player.WHITE, square)
+                & pieceSets[color * 6 + PieceType.PAWN.ordinal()]) != 0) {
+            return true;
+        }
+        if ((Bitboards.knightAttacks(square) & pieceSets[color * 6 + PieceType.KNIGHT.ordinal()]) != 0) {
+            return true;
+        }
+        if ((Bitboards.kingAttacks(square) & pieceSets[color * 6 + PieceType.KING.ordinal()]) != 0) {
+            return true;
+        }
+        long queens = pieceSets[color * 6 + PieceType.QUEEN.ordinal()];
+        long diagonal = pieceSets[color * 6 + PieceType.BISHOP.ordinal()] | queens;
+        if (diagonal != 0 && (Bitboards.bishopAttacks(square, occupied) & diagonal) != 0) {
+            return true;
+        }
+        long straight = pieceSets[color * 6 + PieceType.ROOK.ordinal()] | queens;
+        return straight != 0 && (Bitboards.rookAttacks(square, occupied) & straight) != 0;
+    }
+
+    /**
+     * Check whether the king of the given player is attacked
+     */
+    public boolean isInCheck(Player player) {
+        int kingSquare = kingSquares[player.ordinal()];
+        return kingSquare != NO_SQUARE
+                && isSquareAttacked(kingSquare, player == Player.WHITE ? Player.BLACK : Player.WHITE);
     }
 
     public Player getCurrentTurn() {
-        return currentTurn;
+        return sideToMove == 0 ? Player.WHITE : Player.BLACK;
     }
 
     public void switchTurn() {
-        currentTurn = currentTurn == Player.WHITE ? Player.BLACK : Player.WHITE;
+        if (sideToMove == 1) {
+            fullmoveNumber++;
+        }
+        sideToMove ^= 1;
+        zobristKey ^= Zobrist.blackToMove();
     }
 
     public void setCurrentTurn(Player player) {
-        this.currentTurn = player;
+        if (sideToMove != player.ordinal()) {
+            zobristKey ^= Zobrist.blackToMove();
+        }
+        this.sideToMove = player.ordinal();
     }
 
     /**
-     * Create a deep copy of the board
+     * 64-bit Zobrist key of the position: pieces, side to move, castling rights and en-passant file.
+     * The key is updated incrementally as pieces are placed and removed.
      */
-    public Board copy() {
-        Board newBoard = new Board();
-        for (int row = 0; row < 8; row++) {
-            for (int col = 0; col < 8; col++) {
-                newBoard.squares[row][col] = this.squares[row][col] != null ?
-                        this.squares[row][col].copy() : null;
+    public long getZobristKey() {
+        return zobristKey;
+    }
+
+    /**
+     * Compute the Zobrist key from scratch; equals {@link #getZobristKey()} for a consistent board
+     */
+    public long computeZobristKey() {
+        long key = 0L;
+        for (int square = 0; square < 64; square++) {
+            Piece piece = squares[square];
+            if (piece != null) {
+                key ^= Zobrist.piece(Bitboards.pieceIndex(piece.getType(), piece.getOwner()), square);
             }
         }
-        newBoard.currentTurn = this.currentTurn;
-        return newBoard;
+        key ^= Zobrist.castling(castlingRights) ^ Zobrist.enPassant(enPassantSquare);
+        return sideToMove == 1 ? key ^ Zobrist.blackToMove() : key;
+    }
+
+    private void setCastlingRights(int castlingRights) {
+        zobristKey ^= Zobrist.castling(this.castlingRights) ^ Zobrist.castling(castlingRights);
+        this.castlingRights = castlingRights;
+    }
+
+    public int getCastlingRights() {
+        return castlingRights;
+    }
+
+    public boolean hasCastlingRight(int right) {
+        return (castlingRights & right) != 0;
+    }
+
+    /**
+     * En-passant target square index or {@link Bitboards#NO_SQUARE}
+     */
+    public int getEnPassantSquare() {
+        return enPassantSquare;
+    }
+
+    public int getHalfmoveClock() {
+        return halfmoveClock;
+    }
+
+    public int getFullmoveNumber() {
+        return fullmoveNumber;
+    }
+
+    /**
+     * Update en-passant square and halfmove clock after a movement has been applied
+     *
+     * @param enPassantSquare    square skipped by a double pawn push or {@link Bitboards#NO_SQUARE}
+     * @param resetHalfmoveClock true for pawn moves and captures
+     */
+    public void updateMoveState(int enPassantSquare, boolean resetHalfmoveClock) {
+        zobristKey ^= Zobrist.enPassant(this.enPassantSquare) ^ Zobrist.enPassant(enPassantSquare);
+        this.enPassantSquare = enPassantSquare;
+        this.halfmoveClock = resetHalfmoveClock ? 0 : halfmoveClock + 1;
+    }
+
+    /**
+     * Make a move encoded by {@link Move} and pass the turn to the opponent.
+     * The move is expected to be pseudo-legal for the side to move.
+     * Everything needed to take it back is pushed to the undo stack, see {@link #unmakeMove(int)}.
+     */
+    public void makeMove(int move) {
+        if (undoState == null) {
+            undoState = new int[MAX_UNDO_DEPTH];
+            undoKeys = new long[MAX_UNDO_DEPTH];
+        } else if (undoDepth == MAX_UNDO_DEPTH) {
+            throw new IllegalStateException("Undo stack overflow: more than " + MAX_UNDO_DEPTH + " moves made");
+        }
+        int from = Move.from(move);
+        int to = Move.to(move);
+        Piece piece = squares[from];
+        Player owner = piece.getOwner();
+        int capturedSquare = Move.isEnPassant(move) ? (owner == Player.WHITE ? to + 8 : to - 8) : to;
+        Piece captured = squares[capturedSquare];
+
+        undoKeys[undoDepth] = zobristKey;
+        undoState[undoDepth++] = castlingRights
+                | (enPassantSquare + 1) << 4
+                | Bitboards.pieceIndex(piece.getType(), owner) << 11
+                | (captured == null ? 0 : Bitboards.pieceIndex(captured.getType(), captured.getOwner()) + 1) << 15
+                | halfmoveClock << 19;
+
+        clear(capturedSquare);
+        clear(from);
+        PieceType promotion = Move.promotion(move);
+        put(to, promotion == null ? piece : Piece.of(promotion, owner));
+
+        if (Move.isCastling(move)) {
+            boolean kingSide = to > from;
+            int rookFrom = kingSide ? to + 1 : to - 2;
+            Piece rook = squares[rookFrom];
+            clear(rookFrom);
+            put(kingSide ? to - 1 : to + 1, rook);
+        }
+
+        setCastlingRights(castlingRights & CASTLING_MASK[from] & CASTLING_MASK[to]);
+        updateMoveState(Move.isDoublePush(move) ? (from + to) >>> 1 : NO_SQUARE,
+                piece.getType() == PieceType.PAWN || captured != null);
+        switchTurn();
+    }
+
+    /**
+     * Take back the last move made by {@link #makeMove(int)}
+     */
+    public void unmakeMove(int move) {
+        if (undoDepth == 0) {
+            throw new IllegalStateException("Undo stack is empty");
+        }
+        int state = undoState[--undoDepth];
+
+        sideToMove ^= 1;
+        if (sideToMove == 1) {
+            fullmoveNumber--;
+        }
+
+        int from = Move.from(move);
+        int to = Move.to(move);
+
+        if (Move.isCastling(move)) {
+            boolean kingSide = to > from;
+            int rookTo = kingSide ? to - 1 : to + 1;
+            Piece rook = squares[rookTo];
+            clear(rookTo);
+            put(kingSide ? to + 1 : to - 2, rook);
+        }
+
+        clear(to);
+        Piece piece = Piece.of((state >>> 11) & 0xF);
+        put(from, piece);
+        int captured = (state >>> 15) & 0xF;
+        if (captured != 0) {
+            put(Move.isEnPassant(move) ? (piece.getOwner() == Player.WHITE ? to + 8 : to - 8) : to, Piece.of(captured - 1));
+        }
+
+        castlingRights = state & 0xF;
+        enPassantSquare = ((state >>> 4) & 0x7F) - 1;
+        halfmoveClock = state >>> 19;
+        zobristKey = undoKeys[undoDepth];
+    }
+
+    /**
+     * Create a copy of the board; pieces are immutable, so squares are copied by reference
+     */
+    public Board copy() {
+        return new Board(this);
     }
 
     @Override
@@ -101,7 +414,7 @@ public class Board {
             sb.append(8 - row).append(" |");
 
             for (int col = 0; col < 8; col++) {
-                Piece piece = squares[row][col];
+                Piece piece = squares[Bitboards.square(row, col)];
                 if (piece == null) {
                     boolean isDarkSquare = (row + col) % 2 == 1;
                     sb.append(isDarkSquare ? " . " : "   ");
@@ -120,7 +433,7 @@ public class Board {
 
         sb.append("\n  +---+---+---+---+---+---+---+---+\n");
         sb.append("    a   b   c   d   e   f   g   h\n");
-        sb.append("\n  Turn: ").append(currentTurn).append("\n");
+        sb.append("\n  Turn: ").append(getCurrentTurn()).append("\n");
 
         return sb.toString();
     }
@@ -133,14 +446,13 @@ public class Board {
         for (int row = 0; row < 8; row++) {
             sb.append(8 - row).append(" ");
             for (int col = 0; col < 8; col++) {
-                Piece piece = squares[row][col];
+                Piece piece = squares[Bitboards.square(row, col)];
                 sb.append(piece == null ? "." : piece.getSymbol()).append(" ");
             }
             sb.append(8 - row).append("\n");
         }
         sb.append("  a b c d e f g h\n");
-        sb.append("\n  Turn: ").append(currentTurn).append("\n");
+        sb.append("\n  Turn: ").append(getCurrentTurn()).append("\n");
         return sb.toString();
     }
 }
-
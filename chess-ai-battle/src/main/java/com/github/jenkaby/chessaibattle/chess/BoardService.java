@@ -17,37 +17,72 @@ import java.util.List;
 @Service
 public class BoardService {
 
+    /**
+     * Get the board after the given movements.
+     * Replay starts from the latest movement with a recorded FEN, only older movements without one are replayed.
+     */
     public Board getCurrentBoard(List<Movement> movements) {
-        return this.getCurrentBoard(null, movements);
+        return getCurrentBoardFrom(null, movements);
+    }
+
+    /**
+     * Get the board after the given movements played from the start board (the initial position if null).
+     * Like {@link #getCurrentBoard(List)}, jumps to the latest movement with a recorded FEN.
+     */
+    public Board getCurrentBoardFrom(Board start, List<Movement> movements) {
+        for (int i = movements.size() - 1; i >= 0; i--) {
+            String fen = movements.get(i).fen();
+            if (fen == null) {
+                continue;
+            }
+            Board board;
+            try {
+                board = Fen.parse(fen);
+            } catch (IllegalArgumentException e) {
+                log.warn("Ignoring recorded position of move {}: {}", i + 1, e.getMessage());
+                break;
+            }
+            return this.getCurrentBoard(board, movements.subList(i + 1, movements.size()));
+        }
+        return this.getCurrentBoard(start, movements);
     }
 
     public Board getCurrentBoard(Board actualBoard, List<Movement> movements) {
         Board board = actualBoard == null ? new Board() : actualBoard;
 
         for (int i = 0; i < movements.size(); i++) {
-            Movement movement = movements.get(i);
-            String notation = movement.notation();
-            Player player = movement.player();
-
-            int moveNumber = i + 1;
-            try {
-                ChessMovement chessMovement = parseMovement(notation, board, player);
-                chessMovement.applyTo(board);
-                board.switchTurn();
-
-                log.debug("Applied move {}: {} ({}) - {}", moveNumber, notation, player, movement.reason());
-            } catch (Exception e) {
-                log.error("Failed to apply move {}: {} for player {} - {}",
-                        moveNumber, notation, player, movement.reason(), e);
-                throw new IllegalArgumentException(
-                        String.format("Invalid move at move %d: %s (player: %s, reason: %s)",
-                                moveNumber, notation, player, movement.reason()), e);
-            }
+            applyMovement(board, movements.get(i), i + 1);
         }
 
         return board;
     }
 
+    /**
+     * Apply a single movement to the board and pass the turn
+     *
+     * @param moveNumber number of the movement within the replayed list, used in messages
+     * @return the parsed movement
+     * @throws IllegalArgumentException if the movement cannot be parsed or applied
+     */
+    public ChessMovement applyMovement(Board board, Movement movement, int moveNumber) {
+        String notation = movement.notation();
+        Player player = movement.player();
+        try {
+            ChessMovement chessMovement = parseMovement(notation, board, player);
+            chessMovement.applyTo(board);
+            board.switchTurn();
+
+            log.debug("Applied move {}: {} ({}) - {}", moveNumber, notation, player, movement.reason());
+            return chessMovement;
+        } catch (Exception e) {
+            log.error("Failed to apply move {}: {} for player {} - {}",
+                    moveNumber, notation, player, movement.reason(), e);
+            throw new IllegalArgumentException(
+                    String.format("Invalid move at move %d: %s (player: %s, reason: %s)",
+                            moveNumber, notation, player, movement.reason()), e);
+        }
+    }
+
     /**
      * Get the current board state from string algebraic notations
      *
@@ -77,37 +112,52 @@ public class BoardService {
     }
 
     /**
-     * Parse algebraic notation into a ChessMovement object
+     * Check if the side to move is checkmated
      */
-    public ChessMovement parseMovement(String notation, Board board, Player player) throws ChessRuleException {
-        notation = notation.trim();
+    public boolean isCheckmate(Board board) {
+        return board.isInCheck(board.getCurrentTurn()) && !hasLegalMove(board);
+    }
 
-        // Remove check/checkmate indicators for parsing
-        boolean isCheck = notation.endsWith("+");
-        boolean isCheckmate = notation.endsWith("#");
-        Color color = player == Player.WHITE ? Color.WHITE : Color.BLACK;
-        notation = notation.replaceAll("[+#]", "");
+    /**
+     * Check if the side to move is stalemated
+     */
+    public boolean isStalemate(Board board) {
+        return !board.isInCheck(board.getCurrentTurn()) && !hasLegalMove(board);
+    }
 
-        if ("O-O".equals(notation) || "0-0".equals(notation)) {
-            return parseCastling(board, color, true, isCheck, isCheckmate);
+    private boolean hasLegalMove(Board board) {
+        return MoveGenerator.generateLegalMoves(board, new int[MoveGenerator.MAX_MOVES]) > 0;
+    }
+
+    /**
+     * Parse algebraic notation into a ChessMovement object.
+     * Besides SAN, long forms like "e2e4" or "e7e8q" are accepted, see {@link SanParser}.
+     */
+    public ChessMovement parseMovement(String notation, Board board, Player player) throws ChessRuleException {
+        int san = SanParser.parse(notation);
+        if (san == SanParser.INVALID) {
+            throw new IllegalArgumentException("Invalid move notation: " + notation);
         }
-        if ("O-O-O".equals(notation) || "0-0-0".equals(notation)) {
-            return parseCastling(board, color, false, isCheck, isCheckmate);
+        notation = notation.strip();
+        Color color = player == Player.WHITE ? Color.WHITE : Color.BLACK;
+        boolean isCheck = SanParser.isCheck(san);
+        boolean isCheckmate = SanParser.isCheckmate(san);
+
+        if (SanParser.isCastling(san)) {
+            return parseCastling(notation, color, SanParser.isKingSideCastling(san), isCheck, isCheckmate);
         }
 
-        return parseRegularMove(notation, board, player, isCheck, isCheckmate);
+        return parseRegularMove(notation, san, board, player, color, isCheck, isCheckmate);
     }
 
     /**
      * Parse castling moves
      */
-    private ChessMovement parseCastling(Board board, Color color, boolean kingSide,
+    private ChessMovement parseCastling(String notation, Color color, boolean kingSide,
                                         boolean isCheck, boolean isCheckmate) {
         int row = color == Color.WHITE ? 7 : 0;
-        Position kingFrom = new Position(row, 4);
-        Position kingTo = new Position(row, kingSide ? 6 : 2);
-
-        String notation = kingSide ? "O-O" : "O-O-O";
+        Position kingFrom = Position.of(row, 4);
+        Position kingTo = Position.of(row, kingSide ? 6 : 2);
 
         return ChessMovementFactory.createCastlingMove(notation, kingFrom, kingTo, color, isCheck, isCheckmate);
     }
@@ -115,99 +165,83 @@ public class BoardService {
     /**
      * Parse regular (non-castling) moves
      */
-    private ChessMovement parseRegularMove(String notation, Board board, Player player,
+    private ChessMovement parseRegularMove(String notation, int san, Board board, Player player, Color color,
                                            boolean isCheck, boolean isCheckmate) throws ChessRuleException {
-        boolean isCapture = notation.contains("x");
-        notation = notation.replace("x", "");
-        Color color = player == Player.WHITE ? Color.WHITE : Color.BLACK;
-        // Check for promotion
-        PieceType promotionType = null;
-        if (notation.contains("=")) {
-            String[] parts = notation.split("=");
-            notation = parts[0];
-            promotionType = PieceType.fromNotation(parts[1].charAt(0));
+        Position to = Position.of(SanParser.target(san));
+        PieceType promotionType = SanParser.promotion(san);
+        PieceType pieceType = SanParser.piece(san);
+        Position from;
+
+        if (SanParser.isLongForm(san)) {
+            // the source square is given, so the piece type comes from the board
+            from = Position.of(SanParser.fromRow(san), SanParser.fromFile(san));
+            Piece piece = board.getPiece(from);
+            if (piece == null || piece.getOwner() != player) {
+                throw new IllegalArgumentException("No piece of " + player + " at " + from + ": " + notation);
+            }
+            pieceType = piece.getType();
+            if (pieceType == PieceType.KING && Math.abs(to.getCol() - from.getCol()) == 2) {
+                return parseCastling(notation, color, to.getCol() > from.getCol(), isCheck, isCheckmate);
+            }
+            if (!canPieceMoveTo(board, piece, from, to)) {
+                throw new IllegalMovementException(pieceType, to);
+            }
+        } else {
+            from = findSourcePosition(board, pieceType, player, to, SanParser.fromFile(san), SanParser.fromRow(san));
         }
 
-        // Determine piece type
-        PieceType pieceType = PieceType.PAWN;
-        int startIdx = 0;
-
-        if (Character.isUpperCase(notation.charAt(0))) {
-            pieceType = PieceType.fromNotation(notation.charAt(0));
-            startIdx = 1;
+        boolean isCapture = SanParser.isCapture(san) || board.getPiece(to) != null;
+        if (pieceType == PieceType.PAWN && to.getIndex() == board.getEnPassantSquare() && from.getCol() != to.getCol()) {
+            return ChessMovementFactory.createEnPassantMove(notation, from, to, color,
+                    Position.of(from.getRow(), to.getCol()), isCheck, isCheckmate);
         }
 
-        // Extract destination (last 2 characters)
-        String destSquare = notation.substring(notation.length() - 2);
-        Position to = Position.fromAlgebraic(destSquare);
-
-        // Extract disambiguation (between piece type and destination)
-        String disambiguation = notation.substring(startIdx, notation.length() - 2);
-
-        // Find the piece that can make this move
-        Position from = findSourcePosition(board, pieceType, player, to, disambiguation);
-
         return ChessMovementFactory.createMovement(notation, from, to, pieceType, color, isCapture,
                 false, promotionType, isCheck, isCheckmate);
     }
 
     /**
      * Find which piece of the given type can move to the destination
+     *
+     * @param fromFile source file from the disambiguation or -1
+     * @param fromRow  source row from the disambiguation or -1
      */
     private Position findSourcePosition(Board board, PieceType pieceType, Player player,
-                                        Position to, String disambiguation) throws ChessRuleException {
-        List<Position> candidates = new ArrayList<>();
-
-        // Search for all pieces of the given type and color
-        for (int row = 0; row < 8; row++) {
-            for (int col = 0; col < 8; col++) {
-                Position pos = new Position(row, col);
-                Piece piece = board.getPiece(pos);
-
-                if (piece != null && piece.getType() == pieceType && piece.getOwner() == player) {
-                    if (canPieceMoveTo(board, piece, pos, to)) {
-                        // Check disambiguation
-                        if (matchesDisambiguation(pos, disambiguation)) {
-                            candidates.add(pos);
-                        }
-                    }
+                                        Position to, int fromFile, int fromRow) throws ChessRuleException {
+        Position found = null;
+        List<Position> candidates = null;
+
+        // Visit only the pieces of the given type and color
+        for (long pieces = board.getPieces(pieceType, player); pieces != 0; pieces &= pieces - 1) {
+            int square = Bitboards.first(pieces);
+            if ((fromFile >= 0 && Bitboards.col(square) != fromFile)
+                    || (fromRow >= 0 && Bitboards.row(square) != fromRow)) {
+                continue;
+            }
+            Position pos = Position.of(square);
+            if (!canPieceMoveTo(board, board.getPiece(square), pos, to)) {
+                continue;
+            }
+            if (found == null) {
+                found = pos;
+            } else {
+                if (candidates == null) {
+                    candidates = new ArrayList<>();
+                    candidates.add(found);
                 }
+                candidates.add(pos);
             }
         }
 
-        if (candidates.isEmpty()) {
+        if (found == null) {
             throw new IllegalMovementException(pieceType, to);
         }
 
-        if (candidates.size() > 1) {
+        if (candidates != null) {
             throw new AmbigousMovementException(pieceType, to, candidates);
         }
 
-        return candidates.get(0);
-    }
-
-    /**
-     * Check if position matches disambiguation string
-     */
-    private boolean matchesDisambiguation(Position pos, String disambiguation) {
-        if (disambiguation.isEmpty()) {
-            return true;
-        }
-
-        String posAlgebraic = pos.toAlgebraic();
-
-        // Check file disambiguation
-        if (disambiguation.length() == 1 && Character.isLetter(disambiguation.charAt(0))) {
-            return posAlgebraic.charAt(0) == disambiguation.charAt(0);
-        }
-
-        // Check rank disambiguation
-        if (disambiguation.length() == 1 && Character.isDigit(disambiguation.charAt(0))) {
-            return posAlgebraic.charAt(1) == disambiguation.charAt(0);
-        }
-
-        // Full square disambiguation
-        return posAlgebraic.equals(disambiguation);
+        return found;
     }
 
     /**
@@ -248,81 +282,29 @@ public class BoardService {
      * This handles pinned pieces and prevents illegal moves
      */
     private boolean wouldLeaveKingInCheck(Board board, Piece piece, Position from, Position to) {
-        // Create a copy of the board with the move applied
-        Board tempBoard = board.copy();
-
-        // Apply the move temporarily
-        Piece tempPiece = tempBoard.getPiece(from);
-        tempBoard.removePiece(from);
-        tempBoard.setPiece(to, tempPiece);
-
-        // Check if king is in check after this move
-        return isKingInCheck(tempBoard, piece.getOwner());
-    }
-
-    /**
-     * Check if the king of the given player is in check
-     */
-    private boolean isKingInCheck(Board board, Player player) {
-        // Find the king's position
-        Position kingPos = null;
-        for (int row = 0; row < 8; row++) {
-            for (int col = 0; col < 8; col++) {
-                Position pos = new Position(row, col);
-                Piece piece = board.getPiece(pos);
-                if (piece != null && piece.getType() == PieceType.KING && piece.getOwner() == player) {
-                    kingPos = pos;
-                    break;
-                }
-            }
-            if (kingPos != null) break;
-        }
-
-        if (kingPos == null) {
-            return false; // No king found (shouldn't happen in valid game)
+        Piece target = board.getPiece(to);
+        int move;
+        if (piece.getType() == PieceType.PAWN && target == null && from.getCol() != to.getCol()) {
+            move = Move.of(from.getIndex(), to.getIndex(), PieceType.PAWN, PieceType.PAWN, null, Move.FLAG_EN_PASSANT);
+        } else {
+            move = Move.of(from.getIndex(), to.getIndex(), piece.getType(),
+                    target == null ? null : target.getType(), null, 0);
         }
 
-        // Check if any enemy piece can attack the king
-        Player enemy = player == Player.WHITE ? Player.BLACK : Player.WHITE;
-        for (int row = 0; row < 8; row++) {
-            for (int col = 0; col < 8; col++) {
-                Position pos = new Position(row, col);
-                Piece piece = board.getPiece(pos);
-                if (piece != null && piece.getOwner() == enemy) {
-                    // Check if this enemy piece can attack the king
-                    if (canPieceAttack(board, piece, pos, kingPos)) {
-                        return true;
-                    }
-                }
-            }
+        // Apply the move temporarily and take it back once the king has been checked
+        board.makeMove(move);
+        try {
+            return isKingInCheck(board, piece.getOwner());
+        } finally {
+            board.unmakeMove(move);
         }
-
-        return false;
     }
 
     /**
-     * Check if a piece can attack a position (without checking for check)
-     * This is similar to canPieceMoveTo but doesn't recursively check for check
+     * Check if the king of the given player is in check
      */
-    private boolean canPieceAttack(Board board, Piece piece, Position from, Position to) {
-        int rowDiff = to.getRow() - from.getRow();
-        int colDiff = to.getCol() - from.getCol();
-        int absRowDiff = Math.abs(rowDiff);
-        int absColDiff = Math.abs(colDiff);
-
-        return switch (piece.getType()) {
-            case PAWN -> {
-                int direction = piece.getOwner() == Player.WHITE ? -1 : 1;
-                // Pawn can attack diagonally
-                yield Math.abs(colDiff) == 1 && rowDiff == direction;
-            }
-            case KNIGHT -> (absRowDiff == 2 && absColDiff == 1) || (absRowDiff == 1 && absColDiff == 2);
-            case BISHOP -> absRowDiff == absColDiff && absRowDiff > 0 && isPathClear(board, from, to);
-            case ROOK -> (rowDiff == 0 || colDiff == 0) && isPathClear(board, from, to);
-            case QUEEN -> ((absRowDiff == absColDiff) || (rowDiff == 0 || colDiff == 0)) &&
-                    isPathClear(board, from, to);
-            case KING -> absRowDiff <= 1 && absColDiff <= 1;
-        };
+    private boolean isKingInCheck(Board board, Player player) {
+        return board.isInCheck(player);
     }
 
     /**
@@ -338,15 +320,16 @@ public class BoardService {
             if (targetPiece != null) return false;
             if (rowDiff == direction) return true;
             // Double move from starting position
-            if (rowDiff == 2 * direction && !piece.isHasMoved()) {
-                Position intermediate = new Position(from.getRow() + direction, from.getCol());
-                return board.getPiece(intermediate) == null;
+            int startRow = piece.getOwner() == Player.WHITE ? 6 : 1;
+            if (rowDiff == 2 * direction && from.getRow() == startRow) {
+                return board.getPiece(Bitboards.square(from.getRow() + direction, from.getCol())) == null;
             }
         }
 
-        // Diagonal capture
+        // Diagonal capture, including en passant
         if (Math.abs(colDiff) == 1 && rowDiff == direction) {
-            return targetPiece != null && targetPiece.getOwner() != piece.getOwner();
+            return (targetPiece != null && targetPiece.getOwner() != piece.getOwner())
+                    || to.getIndex() == board.getEnPassantSquare();
         }
 
         return false;
@@ -363,7 +346,7 @@ public class BoardService {
         int currentCol = from.getCol() + colStep;
 
         while (currentRow != to.getRow() || currentCol != to.getCol()) {
-            if (board.getPiece(new Position(currentRow, currentCol)) != null) {
+            if (board.getPiece(Bitboards.square(currentRow, currentCol)) != null) {
                 return false;
             }
             currentRow += rowStep;
@@ -0,0 +1,147 @@
+package com.github.jenkaby.chessaibattle.chess;
+
+import com.github.jenkaby.chessaibattle.model.Player;
+
+/**
+ * Forsyth-Edwards Notation of a position
+ */
+public final class Fen {
+
+    public static final String STARTING_POSITION = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    private Fen() {
+    }
+
+    /**
+     * Create a board from a FEN string.
+     * The halfmove clock and fullmove number may be omitted and default to 0 and 1.
+     *
+     * @throws IllegalArgumentException if the FEN is malformed
+     */
+    public static Board parse(String fen) {
+        String[] fields = fen.strip().split("\\s+");
+        if (fields.length != 4 && fields.length != 6) {
+            throw invalid(fen, "expected 4 or 6 fields");
+        }
+
+        Piece[] squares = new Piece[64];
+        int row = 0;
+        int col = 0;
+        for (int i = 0; i < fields[0].length(); i++) {
+            char c = fields[0].charAt(i);
+            if (c == '/') {
+                if (col != 8) {
+                    throw invalid(fen, "rank " + (8 - row) + " is not complete");
+                }
+                row++;
+                col = 0;
+            } else if (c >= '1' && c <= '8') {
+                col += c - '0';
+            } else {
+                if (row > 7 || col > 7) {
+                    throw invalid(fen, "too many squares");
+                }
+                Player owner = Character.isUpperCase(c) ? Player.WHITE : Player.BLACK;
+                squares[Bitboards.square(row, col++)] = Piece.of(PieceType.fromNotation(Character.toUpperCase(c)), owner);
+            }
+            if (col > 8) {
+                throw invalid(fen, "rank " + (8 - row) + " is too long");
+            }
+        }
+        if (row != 7 || col != 8) {
+            throw invalid(fen, "expected 8 complete ranks");
+        }
+
+        Player sideToMove = switch (fields[1]) {
+            case "w" -> Player.WHITE;
+            case "b" -> Player.BLACK;
+            default -> throw invalid(fen, "unknown side to move " + fields[1]);
+        };
+
+        int castlingRights = 0;
+        if (!"-".equals(fields[2])) {
+            for (int i = 0; i < fields[2].length(); i++) {
+                castlingRights |= switch (fields[2].charAt(i)) {
+                    case 'K' -> Board.WHITE_KING_SIDE;
+                    case 'Q' -> Board.WHITE_QUEEN_SIDE;
+                    case 'k' -> Board.BLACK_KING_SIDE;
+                    case 'q' -> Board.BLACK_QUEEN_SIDE;
+                    default -> throw invalid(fen, "unknown castling right " + fields[2].charAt(i));
+                };
+            }
+        }
+
+        int enPassantSquare = Bitboards.NO_SQUARE;
+        if (!"-".equals(fields[3])) {
+            try {
+                enPassantSquare = Position.fromAlgebraic(fields[3]).getIndex();
+            } catch (IllegalArgumentException e) {
+                throw invalid(fen, "invalid en-passant square " + fields[3]);
+            }
+        }
+
+        int halfmoveClock = 0;
+        int fullmoveNumber = 1;
+        if (fields.length == 6) {
+            try {
+                halfmoveClock = Integer.parseInt(fields[4]);
+                fullmoveNumber = Integer.parseInt(fields[5]);
+            } catch (NumberFormatException e) {
+                throw invalid(fen, "invalid move counters");
+            }
+        }
+
+        return new Board(squares, sideToMove, castlingRights, enPassantSquare, halfmoveClock, fullmoveNumber);
+    }
+
+    /**
+     * FEN of the board including castling rights, en-passant square and move clocks
+     */
+    public static String format(Board board) {
+        StringBuilder sb = new StringBuilder(90);
+        for (int row = 0; row < 8; row++) {
+            if (row > 0) {
+                sb.append('/');
+            }
+            int empty = 0;
+            for (int col = 0; col < 8; col++) {
+                Piece piece = board.getPiece(Bitboards.square(row, col));
+                if (piece == null) {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) {
+                    sb.append(empty);
+                    empty = 0;
+                }
+                char notation = piece.getType().getNotation();
+                sb.append(piece.getOwner() == Player.WHITE ? notation : Character.toLowerCase(notation));
+            }
+            if (empty > 0) {
+                sb.append(empty);
+            }
+        }
+
+        sb.append(board.getCurrentTurn() == Player.WHITE ? " w " : " b ");
+
+        int castlingRights = board.getCastlingRights();
+        if (castlingRights == 0) {
+            sb.append('-');
+        } else {
+            if ((castlingRights & Board.WHITE_KING_SIDE) != 0) sb.append('K');
+            if ((castlingRights & Board.WHITE_QUEEN_SIDE) != 0) sb.append('Q');
+            if ((castlingRights & Board.BLACK_KING_SIDE) != 0) sb.append('k');
+            if ((castlingRights & Board.BLACK_QUEEN_SIDE) != 0) sb.append('q');
+        }
+
+        int enPassantSquare = board.getEnPassantSquare();
+        sb.append(' ').append(enPassantSquare == Bitboards.NO_SQUARE ? "-" : Position.of(enPassantSquare).toAlgebraic());
+        sb.append(' ').append(board.getHalfmoveClock());
+        sb.append(' ').append(board.getFullmoveNumber());
+        return sb.toString();
+    }
+
+    private static IllegalArgumentException invalid(String fen, String reason) {
+        return new IllegalArgumentException("Invalid FEN '" + fen + "': " + reason);
+    }
+}
@@ -0,0 +1,16 @@
+package com.github.jenkaby.chessaibattle.chess;
+
+/**
+ * Ways a game ends by the rules, see {@link GameTerminationDetector}
+ */
+public enum GameTermination {
+    CHECKMATE,
+    STALEMATE,
+    THREEFOLD_REPETITION,
+    FIFTY_MOVE_RULE,
+    INSUFFICIENT_MATERIAL;
+
+    public boolean isDraw() {
+        return this != CHECKMATE;
+    }
+}
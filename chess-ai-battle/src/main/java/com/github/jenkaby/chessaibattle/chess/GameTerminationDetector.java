@@ -0,0 +1,89 @@
+package com.github.jenkaby.chessaibattle.chess;
+
+import com.github.jenkaby.chessaibattle.model.Player;
+
+/**
+ * Detects the end of the game in the position of the side to move.
+ * Draws are applied automatically: threefold repetition and the fifty-move rule do not wait for a claim.
+ */
+public final class GameTerminationDetector {
+
+    private static final long LIGHT_SQUARES;
+
+    static {
+        long light = 0L;
+        for (int square = 0; square < 64; square++) {
+            if ((Bitboards.row(square) + Bitboards.col(square)) % 2 == 0) {
+                light |= Bitboards.bit(square);
+            }
+        }
+        LIGHT_SQUARES = light;
+    }
+
+    private GameTerminationDetector() {
+    }
+
+    /**
+     * @param positionKeys Zobrist keys of the positions of the game, oldest first, ending with the current one;
+     *                     only positions since the last capture or pawn move are looked at
+     * @return the termination or null if the game goes on
+     */
+    public static GameTermination detect(Board board, long[] positionKeys) {
+        if (MoveGenerator.generateLegalMoves(board, new int[MoveGenerator.MAX_MOVES]) == 0) {
+            return board.isInCheck(board.getCurrentTurn()) ? GameTermination.CHECKMATE : GameTermination.STALEMATE;
+        }
+        if (isInsufficientMaterial(board)) {
+            return GameTermination.INSUFFICIENT_MATERIAL;
+        }
+        if (board.getHalfmoveClock() >= 100) {
+            return GameTermination.FIFTY_MOVE_RULE;
+        }
+        if (isThreefoldRepetition(board, positionKeys)) {
+            return GameTermination.THREEFOLD_REPETITION;
+        }
+        return null;
+    }
+
+    /**
+     * No sequence of legal moves can lead to mate: bare kings, a single minor piece,
+     * or bishops only, all on squares of one color
+     */
+    public static boolean isInsufficientMaterial(Board board) {
+        long heavy = 0L;
+        for (Player player : Player.values()) {
+            heavy |= board.getPieces(PieceType.PAWN, player)
+                    | board.getPieces(PieceType.ROOK, player)
+                    | board.getPieces(PieceType.QUEEN, player);
+        }
+        if (heavy != 0) {
+            return false;
+        }
+        long knights = board.getPieces(PieceType.KNIGHT, Player.WHITE) | board.getPieces(PieceType.KNIGHT, Player.BLACK);
+        long bishops = board.getPieces(PieceType.BISHOP, Player.WHITE) | board.getPieces(PieceType.BISHOP, Player.BLACK);
+        int minors = Long.bitCount(knights) + Long.bitCount(bishops);
+        if (minors <= 1) {
+            return true;
+        }
+        return knights == 0 && ((bishops & LIGHT_SQUARES) == 0 || (bishops & ~LIGHT_SQUARES) == 0);
+    }
+
+    /**
+     * The current position, the last of the keys, has occurred at least three times.
+     * Positions before the last capture or pawn move cannot repeat, so the search stops at the halfmove clock.
+     */
+    public static boolean isThreefoldRepetition(Board board, long[] positionKeys) {
+        if (positionKeys == null || positionKeys.length == 0) {
+            return false;
+        }
+        long current = board.getZobristKey();
+        int oldest = Math.max(0, positionKeys.length - 1 - board.getHalfmoveClock());
+        int occurrences = 1;
+        // the same side is to move only every second ply
+        for (int i = positionKeys.length - 3; i >= oldest; i -= 2) {
+            if (positionKeys[i] == current && ++occurrences == 3) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
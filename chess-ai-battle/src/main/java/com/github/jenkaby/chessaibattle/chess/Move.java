@@ -0,0 +1,107 @@
+package com.github.jenkaby.chessaibattle.chess;
+
+/**
+ * Primitive move encoding used by the {@link MoveGenerator}.
+ * <p>
+ * A move is packed into an {@code int}:
+ * <pre>
+ * bits  0..5   from square
+ * bits  6..11  to square
+ * bits 12..14  moving piece type (PieceType ordinal)
+ * bits 15..17  captured piece type (PieceType ordinal + 1, 0 - no capture)
+ * bits 18..20  promotion piece type (PieceType ordinal + 1, 0 - no promotion)
+ * bits 21..23  flags
+ * </pre>
+ */
+public final class Move {
+
+    public static final int NONE = 0;
+
+    public static final int FLAG_DOUBLE_PUSH = 1;
+    public static final int FLAG_EN_PASSANT = 1 << 1;
+    public static final int FLAG_CASTLING = 1 << 2;
+
+    private static final PieceType[] PIECE_TYPES = PieceType.values();
+
+    private Move() {
+    }
+
+    public static int of(int from, int to, PieceType piece, PieceType captured, PieceType promotion, int flags) {
+        return from
+                | to << 6
+                | piece.ordinal() << 12
+                | (captured == null ? 0 : captured.ordinal() + 1) << 15
+                | (promotion == null ? 0 : promotion.ordinal() + 1) << 18
+                | flags << 21;
+    }
+
+    public static int from(int move) {
+        return move & 0x3F;
+    }
+
+    public static int to(int move) {
+        return (move >>> 6) & 0x3F;
+    }
+
+    public static PieceType piece(int move) {
+        return PIECE_TYPES[(move >>> 12) & 0x7];
+    }
+
+    /**
+     * Captured piece type or null if the move is not a capture
+     */
+    public static PieceType captured(int move) {
+        int captured = (move >>> 15) & 0x7;
+        return captured == 0 ? null : PIECE_TYPES[captured - 1];
+    }
+
+    /**
+     * Promotion piece type or null if the move is not a promotion
+     */
+    public static PieceType promotion(int move) {
+        int promotion = (move >>> 18) & 0x7;
+        return promotion == 0 ? null : PIECE_TYPES[promotion - 1];
+    }
+
+    public static int flags(int move) {
+        return (move >>> 21) & 0x7;
+    }
+
+    public static boolean isCapture(int move) {
+        return ((move >>> 15) & 0x7) != 0;
+    }
+
+    public static boolean isPromotion(int move) {
+        return ((move >>> 18) & 0x7) != 0;
+    }
+
+    public static boolean isDoublePush(int move) {
+        return (flags(move) & FLAG_DOUBLE_PUSH) != 0;
+    }
+
+    public static boolean isEnPassant(int move) {
+        return (flags(move) & FLAG_EN_PASSANT) != 0;
+    }
+
+    public static boolean isCastling(int move) {
+        return (flags(move) & FLAG_CASTLING) != 0;
+    }
+
+    /**
+     * Long algebraic (UCI) form of the move, e.g. "e2e4" or "e7e8q"
+     */
+    public static String toUci(int move) {
+        StringBuilder sb = new StringBuilder(5);
+        appendSquare(sb, from(move));
+        appendSquare(sb, to(move));
+        PieceType promotion = promotion(move);
+        if (promotion != null) {
+            sb.append(Character.toLowerCase(promotion.getNotation()));
+        }
+        return sb.toString();
+    }
+
+    private static void appendSquare(StringBuilder sb, int square) {
+        sb.append((char) ('a' + Bitboards.col(square))).append((char) ('8' - Bitboards.row(square)));
+    }
+}
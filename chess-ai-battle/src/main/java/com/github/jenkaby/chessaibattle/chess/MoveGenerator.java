@@ -0,0 +1,181 @@
+package com.github.jenkaby.chessaibattle.chess;
+
+import com.github.jenkaby.chessaibattle.model.Player;
+
+/**
+ * Generates moves for the side to move into a caller-supplied buffer.
+ * Moves are encoded by {@link Move}, so generation does not allocate per move.
+ */
+public final class MoveGenerator {
+
+    /**
+     * Upper bound of moves in any reachable chess position; safe size for move buffers
+     */
+    public static final int MAX_MOVES = 256;
+
+    private static final PieceType[] PROMOTION_TYPES = {PieceType.QUEEN, PieceType.ROOK, PieceType.BISHOP, PieceType.KNIGHT};
+
+    private static final int WHITE_KING_FROM = Bitboards.square(7, 4);
+    private static final int BLACK_KING_FROM = Bitboards.square(0, 4);
+
+    private MoveGenerator() {
+    }
+
+    /**
+     * Fill the buffer with legal moves of the side to move
+     *
+     * @return number of moves written to the buffer
+     */
+    public static int generateLegalMoves(Board board, int[] moves) {
+        int count = generatePseudoLegalMoves(board, moves);
+        Player us = board.getCurrentTurn();
+        int legal = 0;
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            if (isLegal(board, move, us)) {
+                moves[legal++] = move;
+            }
+        }
+        return legal;
+    }
+
+    /**
+     * Fill the buffer with pseudo-legal moves of the side to move, i.e. moves that follow
+     * piece movement rules but may leave the own king in check.
+     * Castling is only generated when the king does not start, pass or land on an attacked square.
+     *
+     * @return number of moves written to the buffer
+     */
+    public static int generatePseudoLegalMoves(Board board, int[] moves) {
+        Player us = board.getCurrentTurn();
+        Player them = opponent(us);
+        long own = board.getOccupancy(us);
+        long enemy = board.getOccupancy(them);
+        long occupied = board.getOccupied();
+        int count = 0;
+
+        count = generatePawnMoves(board, us, enemy, occupied, moves, count);
+
+        for (long knights = board.getPieces(PieceType.KNIGHT, us); knights != 0; knights &= knights - 1) {
+            int from = Bitboards.first(knights);
+            count = addMoves(board, from, PieceType.KNIGHT, Bitboards.knightAttacks(from) & ~own, moves, count);
+        }
+        for (long bishops = board.getPieces(PieceType.BISHOP, us); bishops != 0; bishops &= bishops - 1) {
+            int from = Bitboards.first(bishops);
+            count = addMoves(board, from, PieceType.BISHOP, Bitboards.bishopAttacks(from, occupied) & ~own, moves, count);
+        }
+        for (long rooks = board.getPieces(PieceType.ROOK, us); rooks != 0; rooks &= rooks - 1) {
+            int from = Bitboards.first(rooks);
+            count = addMoves(board, from, PieceType.ROOK, Bitboards.rookAttacks(from, occupied) & ~own, moves, count);
+        }
+        for (long queens = board.getPieces(PieceType.QUEEN, us); queens != 0; queens &= queens - 1) {
+            int from = Bitboards.first(queens);
+            count = addMoves(board, from, PieceType.QUEEN, Bitboards.queenAttacks(from, occupied) & ~own, moves, count);
+        }
+        for (long kings = board.getPieces(PieceType.KING, us); kings != 0; kings &= kings - 1) {
+            int from = Bitboards.first(kings);
+            count = addMoves(board, from, PieceType.KING, Bitboards.kingAttacks(from) & ~own, moves, count);
+        }
+
+        return generateCastlingMoves(board, us, occupied, moves, count);
+    }
+
+    private static boolean isLegal(Board board, int move, Player us) {
+        board.makeMove(move);
+        boolean legal = !board.isInCheck(us);
+        board.unmakeMove(move);
+        return legal;
+    }
+
+    private static int generatePawnMoves(Board board, Player us, long enemy, long occupied, int[] moves, int count) {
+        boolean white = us == Player.WHITE;
+        int forward = white ? -8 : 8;
+        int startRow = white ? 6 : 1;
+        int promotionRow = white ? 0 : 7;
+
+        for (long pawns = board.getPieces(PieceType.PAWN, us); pawns != 0; pawns &= pawns - 1) {
+            int from = Bitboards.first(pawns);
+            int to = from + forward;
+
+            if ((occupied & Bitboards.bit(to)) == 0) {
+                count = addPawnMove(from, to, null, promotionRow, moves, count);
+                int doubleTo = to + forward;
+                if (Bitboards.row(from) == startRow && (occupied & Bitboards.bit(doubleTo)) == 0) {
+                    moves[count++] = Move.of(from, doubleTo, PieceType.PAWN, null, null, Move.FLAG_DOUBLE_PUSH);
+                }
+            }
+
+            for (long targets = Bitboards.pawnAttacks(us, from) & enemy; targets != 0; targets &= targets - 1) {
+                int target = Bitboards.first(targets);
+                count = addPawnMove(from, target, board.getPiece(target).getType(), promotionRow, moves, count);
+            }
+        }
+
+        int enPassantSquare = board.getEnPassantSquare();
+        if (enPassantSquare != Bitboards.NO_SQUARE) {
+            long attackers = Bitboards.pawnAttacks(opponent(us), enPassantSquare) & board.getPieces(PieceType.PAWN, us);
+            for (; attackers != 0; attackers &= attackers - 1) {
+                moves[count++] = Move.of(Bitboards.first(attackers), enPassantSquare, PieceType.PAWN,
+                        PieceType.PAWN, null, Move.FLAG_EN_PASSANT);
+            }
+        }
+        return count;
+    }
+
+    private static int addPawnMove(int from, int to, PieceType captured, int promotionRow, int[] moves, int count) {
+        if (Bitboards.row(to) != promotionRow) {
+            moves[count++] = Move.of(from, to, PieceType.PAWN, captured, null, 0);
+            return count;
+        }
+        for (PieceType promotion : PROMOTION_TYPES) {
+            moves[count++] = Move.of(from, to, PieceType.PAWN, captured, promotion, 0);
+        }
+        return count;
+    }
+
+    private static int addMoves(Board board, int from, PieceType pieceType, long targets, int[] moves, int count) {
+        for (; targets != 0; targets &= targets - 1) {
+            int to = Bitboards.first(targets);
+            Piece captured = board.getPiece(to);
+            moves[count++] = Move.of(from, to, pieceType, captured == null ? null : captured.getType(), null, 0);
+        }
+        return count;
+    }
+
+    private static int generateCastlingMoves(Board board, Player us, long occupied, int[] moves, int count) {
+        boolean white = us == Player.WHITE;
+        int kingFrom = white ? WHITE_KING_FROM : BLACK_KING_FROM;
+        int kingSide = white ? Board.WHITE_KING_SIDE : Board.BLACK_KING_SIDE;
+        int queenSide = white ? Board.WHITE_QUEEN_SIDE : Board.BLACK_QUEEN_SIDE;
+
+        if (!board.hasCastlingRight(kingSide | queenSide)
+                || board.getKingSquare(us) != kingFrom) {
+            return count;
+        }
+        Player them = opponent(us);
+        if (board.isSquareAttacked(kingFrom, them)) {
+            return count;
+        }
+        long rooks = board.getPieces(PieceType.ROOK, us);
+
+        if (board.hasCastlingRight(kingSide)
+                && (rooks & Bitboards.bit(kingFrom + 3)) != 0
+                && (occupied & (Bitboards.bit(kingFrom + 1) | Bitboards.bit(kingFrom + 2))) == 0
+                && !board.isSquareAttacked(kingFrom + 1, them)
+                && !board.isSquareAttacked(kingFrom + 2, them)) {
+            moves[count++] = Move.of(kingFrom, kingFrom + 2, PieceType.KING, null, null, Move.FLAG_CASTLING);
+        }
+        if (board.hasCastlingRight(queenSide)
+                && (rooks & Bitboards.bit(kingFrom - 4)) != 0
+                && (occupied & (Bitboards.bit(kingFrom - 1) | Bitboards.bit(kingFrom - 2) | Bitboards.bit(kingFrom - 3))) == 0
+                && !board.isSquareAttacked(kingFrom - 1, them)
+                && !board.isSquareAttacked(kingFrom - 2, them)) {
+            moves[count++] = Move.of(kingFrom, kingFrom - 2, PieceType.KING, null, null, Move.FLAG_CASTLING);
+        }
+        return count;
+    }
+
+    private static Player opponent(Player player) {
+        return player == Player.WHITE ? Player.BLACK : Player.WHITE;
+    }
+}
@@ -0,0 +1,87 @@
+package com.github.jenkaby.chessaibattle.chess;
+
+/**
+ * 16-bit move encoding for compact storage of games.
+ * <pre>
+ * bits  0..5   from square
+ * bits  6..11  to square
+ * bit  12      promotion flag
+ * bits 13..14  promotion piece: 0 - knight, 1 - bishop, 2 - rook, 3 - queen
+ * </pre>
+ * Castling is stored as the king move, e.g. e1g1. Everything else is restored from the position,
+ * see {@link #resolve(Board, short, int[])}.
+ */
+public final class PackedMove {
+
+    public static final int BYTES = 2;
+
+    private static final int PROMOTION_FLAG = 1 << 12;
+    private static final PieceType[] PIECE_TYPES = PieceType.values();
+
+    private PackedMove() {
+    }
+
+    public static short pack(int from, int to, PieceType promotion) {
+        int packed = from | to << 6;
+        if (promotion != null) {
+            packed |= PROMOTION_FLAG | (promotion.ordinal() - PieceType.KNIGHT.ordinal()) << 13;
+        }
+        return (short) packed;
+    }
+
+    public static short pack(int move) {
+        return pack(Move.from(move), Move.to(move), Move.promotion(move));
+    }
+
+    public static int from(short packed) {
+        return packed & 0x3F;
+    }
+
+    public static int to(short packed) {
+        return (packed >>> 6) & 0x3F;
+    }
+
+    /**
+     * Promotion piece type or null if the move is not a promotion
+     */
+    public static PieceType promotion(short packed) {
+        if ((packed & PROMOTION_FLAG) == 0) {
+            return null;
+        }
+        return PIECE_TYPES[PieceType.KNIGHT.ordinal() + ((packed >>> 13) & 0x3)];
+    }
+
+    /**
+     * Find the legal move of the side to move that matches the packed move
+     *
+     * @param buffer move buffer of at least {@link MoveGenerator#MAX_MOVES}
+     * @return the move encoded by {@link Move}
+     * @throws IllegalArgumentException if no legal move matches
+     */
+    public static int resolve(Board board, short packed, int[] buffer) {
+        int count = MoveGenerator.generateLegalMoves(board, buffer);
+        int from = from(packed);
+        int to = to(packed);
+        PieceType promotion = promotion(packed);
+        for (int i = 0; i < count; i++) {
+            int move = buffer[i];
+            if (Move.from(move) == from && Move.to(move) == to && Move.promotion(move) == promotion) {
+                return move;
+            }
+        }
+        throw new IllegalArgumentException("No legal move " + Position.of(from) + Position.of(to)
+                + (promotion == null ? "" : String.valueOf(promotion.getNotation())));
+    }
+
+    /**
+     * Write the packed move big-endian at the given move index
+     */
+    public static void write(byte[] moves, int index, short packed) {
+        moves[index * BYTES] = (byte) (packed >>> 8);
+        moves[index * BYTES + 1] = (byte) packed;
+    }
+
+    public static short read(byte[] moves, int index) {
+        return (short) ((moves[index * BYTES] & 0xFF) << 8 | (moves[index * BYTES + 1] & 0xFF));
+    }
+}
@@ -1,27 +1,43 @@
 package com.github.jenkaby.chessaibattle.chess;
 
 import com.github.jenkaby.chessaibattle.model.Player;
-import lombok.AllArgsConstructor;
-import lombok.Data;
+import lombok.Getter;
 
 /**
- * Represents a chess piece on the board
+ * Represents a chess piece on the board.
+ * Pieces are immutable flyweights, one per type and owner; use {@link #of(PieceType, Player)}.
+ * Whether a king, rook or pawn has moved is tracked by the board's castling rights and pawn ranks.
  */
-@Data
-@AllArgsConstructor
-public class Piece {
-    private PieceType type;
-    private Player owner;
-    private boolean hasMoved;
-
-    public Piece(PieceType type, Player owner) {
+@Getter
+public final class Piece {
+
+    private static final Piece[] PIECES = new Piece[12];
+
+    static {
+        for (Player owner : Player.values()) {
+            for (PieceType type : PieceType.values()) {
+                PIECES[Bitboards.pieceIndex(type, owner)] = new Piece(type, owner);
+            }
+        }
+    }
+
+    private final PieceType type;
+    private final Player owner;
+
+    private Piece(PieceType type, Player owner) {
         this.type = type;
         this.owner = owner;
-        this.hasMoved = false;
     }
 
-    public Piece copy() {
-        return new Piece(type, owner, hasMoved);
+    public static Piece of(PieceType type, Player owner) {
+        return PIECES[Bitboards.pieceIndex(type, owner)];
+    }
+
+    /**
+     * Piece by its index, see {@link Bitboards#pieceIndex(PieceType, Player)}
+     */
+    public static Piece of(int pieceIndex) {
+        return PIECES[pieceIndex];
     }
 
     public char getSymbol() {
@@ -33,4 +49,3 @@ public class Piece {
         return String.valueOf(getSymbol());
     }
 }
-
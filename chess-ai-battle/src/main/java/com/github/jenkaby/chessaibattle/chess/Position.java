@@ -1,21 +1,46 @@
 package com.github.jenkaby.chessaibattle.chess;
 
-import lombok.Data;
+import lombok.Getter;
 
 /**
- * Represents a position on the chess board (0-7 for both row and column)
+ * Represents a position on the chess board (0-7 for both row and column).
+ * Positions are canonical: there is exactly one instance per square, obtained via {@link #of(int, int)},
+ * {@link #of(int)} or {@link #fromAlgebraic(String)}.
  */
-@Data
-public class Position {
+@Getter
+public final class Position {
+
+    private static final Position[] POSITIONS = new Position[64];
+
+    static {
+        for (int index = 0; index < 64; index++) {
+            POSITIONS[index] = new Position(index >>> 3, index & 7);
+        }
+    }
+
     private final int row;
     private final int col;
 
-    public Position(int row, int col) {
+    private Position(int row, int col) {
+        this.row = row;
+        this.col = col;
+    }
+
+    public static Position of(int row, int col) {
         if (row < 0 || row > 7 || col < 0 || col > 7) {
             throw new IllegalArgumentException("Invalid position: row=" + row + ", col=" + col);
         }
-        this.row = row;
-        this.col = col;
+        return POSITIONS[(row << 3) | col];
+    }
+
+    /**
+     * Position by square index {@code row * 8 + col}, see {@link Bitboards}
+     */
+    public static Position of(int index) {
+        if (index < 0 || index > 63) {
+            throw new IllegalArgumentException("Invalid position index: " + index);
+        }
+        return POSITIONS[index];
     }
 
     /**
@@ -36,7 +61,14 @@ public class Position {
         int col = file - 'a';
         int row = 8 - (rank - '0');
 
-        return new Position(row, col);
+        return POSITIONS[(row << 3) | col];
+    }
+
+    /**
+     * Square index {@code row * 8 + col}, see {@link Bitboards}
+     */
+    public int getIndex() {
+        return (row << 3) | col;
     }
 
     /**
@@ -65,4 +97,3 @@ public class Position {
         return 31 * row + col;
     }
 }
-
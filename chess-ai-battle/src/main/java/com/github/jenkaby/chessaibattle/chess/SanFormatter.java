@@ -0,0 +1,123 @@
+package com.github.jenkaby.chessaibattle.chess;
+
+import com.github.jenkaby.chessaibattle.model.Player;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes moves encoded by {@link Move} in standard algebraic notation, the form {@link SanParser} reads back.
+ * Disambiguation and check/mate suffixes depend on the position, so the board before the move is required.
+ */
+public final class SanFormatter {
+
+    private SanFormatter() {
+    }
+
+    /**
+     * SAN of a legal move of the side to move, e.g. "Nbd7", "exd8=Q+" or "O-O#".
+     * The board is used for make/unmake and is left unchanged.
+     */
+    public static String format(Board board, int move) {
+        return format(board, move, new int[MoveGenerator.MAX_MOVES]);
+    }
+
+    /**
+     * Same as {@link #format(Board, int)} with a caller-supplied buffer for generated moves
+     */
+    public static String format(Board board, int move, int[] buffer) {
+        int count = MoveGenerator.generateLegalMoves(board, buffer);
+        return format(board, move, buffer, count, new int[MoveGenerator.MAX_MOVES]);
+    }
+
+    /**
+     * SAN of every legal move of the side to move, in generation order
+     */
+    public static List<String> legalMoves(Board board) {
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int[] buffer = new int[MoveGenerator.MAX_MOVES];
+        int count = MoveGenerator.generateLegalMoves(board, moves);
+        List<String> notations = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            notations.add(format(board, moves[i], moves, count, buffer));
+        }
+        return notations;
+    }
+
+    /**
+     * @param legalMoves all legal moves of the position, used for disambiguation
+     * @param buffer     scratch buffer for the position after the move
+     */
+    private static String format(Board board, int move, int[] legalMoves, int legalCount, int[] buffer) {
+        StringBuilder sb = new StringBuilder(8);
+        int from = Move.from(move);
+        int to = Move.to(move);
+        PieceType piece = Move.piece(move);
+
+        if (Move.isCastling(move)) {
+            sb.append(to > from ? "O-O" : "O-O-O");
+        } else {
+            if (piece == PieceType.PAWN) {
+                if (Move.isCapture(move)) {
+                    sb.append(file(from));
+                }
+            } else {
+                sb.append(piece.getNotation());
+                appendDisambiguation(sb, move, legalMoves, legalCount);
+            }
+            if (Move.isCapture(move)) {
+                sb.append('x');
+            }
+            sb.append(file(to)).append(rank(to));
+            PieceType promotion = Move.promotion(move);
+            if (promotion != null) {
+                sb.append('=').append(promotion.getNotation());
+            }
+        }
+
+        board.makeMove(move);
+        Player opponent = board.getCurrentTurn();
+        if (board.isInCheck(opponent)) {
+            sb.append(MoveGenerator.generateLegalMoves(board, buffer) == 0 ? '#' : '+');
+        }
+        board.unmakeMove(move);
+        return sb.toString();
+    }
+
+    private static void appendDisambiguation(StringBuilder sb, int move, int[] legalMoves, int legalCount) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        PieceType piece = Move.piece(move);
+
+        boolean ambiguous = false;
+        boolean sameFile = false;
+        boolean sameRank = false;
+        for (int i = 0; i < legalCount; i++) {
+            int other = legalMoves[i];
+            if (Move.to(other) != to || Move.piece(other) != piece || Move.from(other) == from) {
+                continue;
+            }
+            ambiguous = true;
+            sameFile |= Bitboards.col(Move.from(other)) == Bitboards.col(from);
+            sameRank |= Bitboards.row(Move.from(other)) == Bitboards.row(from);
+        }
+        if (!ambiguous) {
+            return;
+        }
+        if (!sameFile) {
+            sb.append(file(from));
+        } else if (!sameRank) {
+            sb.append(rank(from));
+        } else {
+            sb.append(file(from)).append(rank(from));
+        }
+    }
+
+    private static char file(int square) {
+        return (char) ('a' + Bitboards.col(square));
+    }
+
+    private static char rank(int square) {
+        return (char) ('8' - Bitboards.row(square));
+    }
+}
@@ -0,0 +1,60 @@
+package com.github.jenkaby.chessaibattle.chess;
+
+/**
+ * Matches loosely written notation against the legal moves of the side to move.
+ * <p>
+ * Only the squares, the piece and the promotion decide the match: capture markers and check/mate suffixes
+ * are ignored, long forms such as {@code g1f3} take the piece from the board and a missing promotion piece
+ * stands for a queen. A unique match can be written back in canonical form with {@link SanFormatter}.
+ */
+public final class SanMatcher {
+
+    private SanMatcher() {
+    }
+
+    /**
+     * Move the legal moves matching the notation to the start of the buffer
+     *
+     * @param buffer move buffer of at least {@link MoveGenerator#MAX_MOVES}
+     * @return number of matching moves, 0 if the notation cannot be parsed or nothing matches
+     */
+    public static int match(Board board, CharSequence notation, int[] buffer) {
+        int descriptor = SanParser.parse(notation);
+        if (descriptor == SanParser.INVALID) {
+            return 0;
+        }
+        int count = MoveGenerator.generateLegalMoves(board, buffer);
+        int matched = 0;
+        for (int i = 0; i < count; i++) {
+            int move = buffer[i];
+            if (matches(descriptor, move)) {
+                buffer[matched++] = move;
+            }
+        }
+        return matched;
+    }
+
+    private static boolean matches(int descriptor, int move) {
+        if (SanParser.isCastling(descriptor)) {
+            return Move.isCastling(move) && SanParser.isKingSideCastling(descriptor) == (Move.to(move) > Move.from(move));
+        }
+        if (Move.to(move) != SanParser.target(descriptor)) {
+            return false;
+        }
+        int fromFile = SanParser.fromFile(descriptor);
+        int fromRow = SanParser.fromRow(descriptor);
+        if (SanParser.isLongForm(descriptor)) {
+            if (Move.from(move) != Bitboards.square(fromRow, fromFile)) {
+                return false;
+            }
+        } else if (Move.piece(move) != SanParser.piece(descriptor)
+                || fromFile >= 0 && Bitboards.col(Move.from(move)) != fromFile
+                || fromRow >= 0 && Bitboards.row(Move.from(move)) != fromRow) {
+            return false;
+        }
+        PieceType promotion = SanParser.promotion(descriptor);
+        return promotion != null
+                ? Move.promotion(move) == promotion
+                : Move.promotion(move) == null || Move.promotion(move) == PieceType.QUEEN;
+    }
+}
@@ -0,0 +1,258 @@
+package com.github.jenkaby.chessaibattle.chess;
+
+/**
+ * Single-pass tokenizer of move notation.
+ * <p>
+ * Accepts standard algebraic notation ({@code e4}, {@code Nbd7}, {@code exd8=Q+}, {@code O-O-O}),
+ * castling written with zeros ({@code 0-0}) and long forms ({@code e2e4}, {@code e7e8q}, {@code Ng1-f3}).
+ * Trailing check/mate markers and {@code !}/{@code ?} annotations are accepted, surrounding whitespace is ignored.
+ * <p>
+ * The notation is parsed into an {@code int} descriptor, so parsing does not allocate:
+ * <pre>
+ * bits  0..5   target square
+ * bits  6..8   piece type (PieceType ordinal)
+ * bits  9..12  source file (col + 1, 0 - not given)
+ * bits 13..16  source rank (row + 1, 0 - not given)
+ * bits 17..19  promotion piece type (PieceType ordinal + 1, 0 - no promotion)
+ * bits 20..25  flags
+ * </pre>
+ * Castling descriptors carry only the castling flag. {@link #INVALID} is returned for malformed notation.
+ */
+public final class SanParser {
+
+    public static final int INVALID = -1;
+
+    public static final int FLAG_CAPTURE = 1;
+    public static final int FLAG_CHECK = 1 << 1;
+    public static final int FLAG_CHECKMATE = 1 << 2;
+    public static final int FLAG_KING_SIDE_CASTLING = 1 << 3;
+    public static final int FLAG_QUEEN_SIDE_CASTLING = 1 << 4;
+    /**
+     * No piece letter and a full source square, e.g. {@code e2e4}; the piece type comes from the board
+     */
+    public static final int FLAG_LONG_FORM = 1 << 5;
+
+    private static final PieceType[] PIECE_TYPES = PieceType.values();
+
+    private SanParser() {
+    }
+
+    public static int parse(CharSequence notation) {
+        int end = notation.length();
+        while (end > 0 && Character.isWhitespace(notation.charAt(end - 1))) {
+            end--;
+        }
+        int i = 0;
+        while (i < end && Character.isWhitespace(notation.charAt(i))) {
+            i++;
+        }
+
+        // annotations and check markers
+        int flags = 0;
+        while (end > i) {
+            char c = notation.charAt(end - 1);
+            if (c == '+') {
+                flags |= FLAG_CHECK;
+            } else if (c == '#') {
+                flags |= FLAG_CHECKMATE;
+            } else if (c != '!' && c != '?') {
+                break;
+            }
+            end--;
+        }
+        if (i == end) {
+            return INVALID;
+        }
+
+        char first = notation.charAt(i);
+        if (first == 'O' || first == '0') {
+            return parseCastling(notation, i, end, first, flags);
+        }
+
+        int piece = pieceOrdinal(first);
+        boolean pieceLetter = piece != PieceType.PAWN.ordinal() || first == 'P';
+        if (pieceLetter) {
+            i++;
+        }
+
+        int file1 = -1;
+        int row1 = -1;
+        if (i < end && isFile(notation.charAt(i))) {
+            file1 = notation.charAt(i++) - 'a';
+        }
+        if (i < end && isRank(notation.charAt(i))) {
+            row1 = '8' - notation.charAt(i++);
+        }
+        if (i < end && (notation.charAt(i) == 'x' || notation.charAt(i) == ':')) {
+            flags |= FLAG_CAPTURE;
+            i++;
+        } else if (i < end && notation.charAt(i) == '-') {
+            i++;
+        }
+
+        int file2 = -1;
+        int row2 = -1;
+        if (i + 1 < end && isFile(notation.charAt(i)) && isRank(notation.charAt(i + 1))) {
+            file2 = notation.charAt(i) - 'a';
+            row2 = '8' - notation.charAt(i + 1);
+            i += 2;
+        }
+
+        int target;
+        int fromFile;
+        int fromRow;
+        if (file2 >= 0) {
+            target = Bitboards.square(row2, file2);
+            fromFile = file1;
+            fromRow = row1;
+        } else if (file1 >= 0 && row1 >= 0 && (flags & FLAG_CAPTURE) == 0) {
+            target = Bitboards.square(row1, file1);
+            fromFile = -1;
+            fromRow = -1;
+        } else {
+            return INVALID;
+        }
+        if (!pieceLetter && fromFile >= 0 && fromRow >= 0) {
+            flags |= FLAG_LONG_FORM;
+        }
+
+        int promotion = 0;
+        if (i < end && notation.charAt(i) == '=') {
+            i++;
+            if (i == end) {
+                return INVALID;
+            }
+        }
+        if (i < end) {
+            promotion = promotionOrdinal(notation.charAt(i++));
+            if (promotion < 0) {
+                return INVALID;
+            }
+            promotion++;
+        }
+        if (i != end) {
+            return INVALID;
+        }
+
+        return target
+                | piece << 6
+                | (fromFile + 1) << 9
+                | (fromRow + 1) << 13
+                | promotion << 17
+                | flags << 20;
+    }
+
+    public static int target(int descriptor) {
+        return descriptor & 0x3F;
+    }
+
+    public static PieceType piece(int descriptor) {
+        return PIECE_TYPES[(descriptor >>> 6) & 0x7];
+    }
+
+    /**
+     * Source file (column) or -1 if not given
+     */
+    public static int fromFile(int descriptor) {
+        return ((descriptor >>> 9) & 0xF) - 1;
+    }
+
+    /**
+     * Source rank as a board row or -1 if not given
+     */
+    public static int fromRow(int descriptor) {
+        return ((descriptor >>> 13) & 0xF) - 1;
+    }
+
+    /**
+     * Promotion piece type or null if the move is not a promotion
+     */
+    public static PieceType promotion(int descriptor) {
+        int promotion = (descriptor >>> 17) & 0x7;
+        return promotion == 0 ? null : PIECE_TYPES[promotion - 1];
+    }
+
+    public static int flags(int descriptor) {
+        return (descriptor >>> 20) & 0x3F;
+    }
+
+    public static boolean isCapture(int descriptor) {
+        return (flags(descriptor) & FLAG_CAPTURE) != 0;
+    }
+
+    public static boolean isCheck(int descriptor) {
+        return (flags(descriptor) & FLAG_CHECK) != 0;
+    }
+
+    public static boolean isCheckmate(int descriptor) {
+        return (flags(descriptor) & FLAG_CHECKMATE) != 0;
+    }
+
+    public static boolean isCastling(int descriptor) {
+        return (flags(descriptor) & (FLAG_KING_SIDE_CASTLING | FLAG_QUEEN_SIDE_CASTLING)) != 0;
+    }
+
+    public static boolean isKingSideCastling(int descriptor) {
+        return (flags(descriptor) & FLAG_KING_SIDE_CASTLING) != 0;
+    }
+
+    public static boolean isLongForm(int descriptor) {
+        return (flags(descriptor) & FLAG_LONG_FORM) != 0;
+    }
+
+    /**
+     * Notation without trailing check/mate markers; returns the same instance when there are none
+     */
+    public static String withoutCheckSuffix(String notation) {
+        int end = notation.length();
+        while (end > 0 && (notation.charAt(end - 1) == '+' || notation.charAt(end - 1) == '#')) {
+            end--;
+        }
+        return end == notation.length() ? notation : notation.substring(0, end);
+    }
+
+    private static int parseCastling(CharSequence notation, int i, int end, char letter, int flags) {
+        int length = end - i;
+        if (length != 3 && length != 5) {
+            return INVALID;
+        }
+        for (int k = 1; k < length; k += 2) {
+            if (notation.charAt(i + k) != '-' || notation.charAt(i + k + 1) != letter) {
+                return INVALID;
+            }
+        }
+        return (flags | (length == 3 ? FLAG_KING_SIDE_CASTLING : FLAG_QUEEN_SIDE_CASTLING)) << 20;
+    }
+
+    /**
+     * Ordinal of a piece given by an uppercase letter, pawn ordinal for 'P' and non-piece characters
+     */
+    private static int pieceOrdinal(char c) {
+        return switch (c) {
+            case 'N' -> PieceType.KNIGHT.ordinal();
+            case 'B' -> PieceType.BISHOP.ordinal();
+            case 'R' -> PieceType.ROOK.ordinal();
+            case 'Q' -> PieceType.QUEEN.ordinal();
+            case 'K' -> PieceType.KING.ordinal();
+            default -> 0;
+        };
+    }
+
+    private static int promotionOrdinal(char c) {
+        return switch (c) {
+            case 'N', 'n' -> PieceType.KNIGHT.ordinal();
+            case 'B', 'b' -> PieceType.BISHOP.ordinal();
+            case 'R', 'r' -> PieceType.ROOK.ordinal();
+            case 'Q', 'q' -> PieceType.QUEEN.ordinal();
+            default -> -1;
+        };
+    }
+
+    private static boolean isFile(char c) {
+        return c >= 'a' && c <= 'h';
+    }
+
+    private static boolean isRank(char c) {
+        return c >= '1' && c <= '8';
+    }
+}
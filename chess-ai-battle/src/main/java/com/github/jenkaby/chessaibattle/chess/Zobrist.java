@@ -0,0 +1,61 @@
+package com.github.jenkaby.chessaibattle.chess;
+
+import java.util.SplittableRandom;
+
+/**
+ * Random keys for Zobrist hashing of positions.
+ * Keys are generated from a fixed seed, so position keys are stable between application runs.
+ */
+public final class Zobrist {
+
+    private static final long SEED = 0x5EED_C4E5_5A1B_A77EL;
+
+    private static final long[][] PIECE_SQUARE = new long[12][64];
+    private static final long[] CASTLING = new long[16];
+    private static final long[] EN_PASSANT_FILE = new long[8];
+    private static final long BLACK_TO_MOVE;
+
+    static {
+        SplittableRandom random = new SplittableRandom(SEED);
+        for (long[] squares : PIECE_SQUARE) {
+            for (int square = 0; square < 64; square++) {
+                squares[square] = random.nextLong();
+            }
+        }
+        // no castling rights contribute nothing, so a board without rights needs no initial key
+        for (int rights = 1; rights < CASTLING.length; rights++) {
+            CASTLING[rights] = random.nextLong();
+        }
+        for (int file = 0; file < EN_PASSANT_FILE.length; file++) {
+            EN_PASSANT_FILE[file] = random.nextLong();
+        }
+        BLACK_TO_MOVE = random.nextLong();
+    }
+
+    private Zobrist() {
+    }
+
+    /**
+     * Key of a piece on a square
+     *
+     * @param pieceIndex see {@link Bitboards#pieceIndex(PieceType, com.github.jenkaby.chessaibattle.model.Player)}
+     */
+    public static long piece(int pieceIndex, int square) {
+        return PIECE_SQUARE[pieceIndex][square];
+    }
+
+    public static long castling(int castlingRights) {
+        return CASTLING[castlingRights];
+    }
+
+    /**
+     * Key of the en-passant file or 0 when there is no en-passant square
+     */
+    public static long enPassant(int enPassantSquare) {
+        return enPassantSquare == Bitboards.NO_SQUARE ? 0L : EN_PASSANT_FILE[Bitboards.col(enPassantSquare)];
+    }
+
+    public static long blackToMove() {
+        return BLACK_TO_MOVE;
+    }
+}
@@ -3,6 +3,7 @@ package com.github.jenkaby.chessaibattle.chess.movement;
 import com.github.jenkaby.chessaibattle.chess.Color;
 import com.github.jenkaby.chessaibattle.chess.PieceType;
 import com.github.jenkaby.chessaibattle.chess.Position;
+import com.github.jenkaby.chessaibattle.chess.SanParser;
 import lombok.Getter;
 
 /**
@@ -25,7 +26,7 @@ public abstract class AbstractChessMovement implements ChessMovement {
     protected AbstractChessMovement(String algebraicNotation, Position from, Position to,
                                     PieceType pieceType, Color color, boolean isCapture,
                                     boolean isCheck, boolean isCheckmate) {
-        this.algebraicNotation = algebraicNotation.replaceAll("[+#]", "");
+        this.algebraicNotation = SanParser.withoutCheckSuffix(algebraicNotation);
         this.rawAlgebraicNotation = algebraicNotation;
         this.from = from;
         this.to = to;
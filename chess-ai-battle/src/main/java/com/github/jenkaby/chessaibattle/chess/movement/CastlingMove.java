@@ -30,13 +30,12 @@ public class CastlingMove extends AbstractChessMovement {
         }
 
         board.removePiece(from);
-        king.setHasMoved(true);
         board.setPiece(to, king);
 
         // Move rook
         int row = from.getRow();
-        Position rookFrom = new Position(row, kingSide ? 7 : 0);
-        Position rookTo = new Position(row, kingSide ? 5 : 3);
+        Position rookFrom = Position.of(row, kingSide ? 7 : 0);
+        Position rookTo = Position.of(row, kingSide ? 5 : 3);
 
         Piece rook = board.getPiece(rookFrom);
         if (rook == null || rook.getType() != PieceType.ROOK) {
@@ -44,8 +43,9 @@ public class CastlingMove extends AbstractChessMovement {
         }
 
         board.removePiece(rookFrom);
-        rook.setHasMoved(true);
         board.setPiece(rookTo, rook);
+
+        board.updateMoveState(Bitboards.NO_SQUARE, false);
     }
 
     public boolean isKingSide() {
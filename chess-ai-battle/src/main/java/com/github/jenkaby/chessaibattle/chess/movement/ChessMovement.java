@@ -68,7 +68,9 @@ public interface ChessMovement {
     String getRawAlgebraicNotation();
 
     /**
-     * Apply this movement to the board
+     * Apply this movement to the board.
+     * Implementations change the board only through {@link Board#setPiece}, {@link Board#removePiece}
+     * and {@link Board#updateMoveState}, which keep the board's Zobrist key up to date incrementally.
      *
      * @param board The board to apply the movement to
      */
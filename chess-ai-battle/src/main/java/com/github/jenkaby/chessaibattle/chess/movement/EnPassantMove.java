@@ -32,8 +32,9 @@ public class EnPassantMove extends AbstractChessMovement {
         board.removePiece(capturedPawnPosition);
 
         // Place pawn at destination
-        pawn.setHasMoved(true);
         board.setPiece(to, pawn);
+
+        board.updateMoveState(Bitboards.NO_SQUARE, true);
     }
 
     public Position getCapturedPawnPosition() {
@@ -38,10 +38,12 @@ public class PawnPromotionMove extends AbstractChessMovement {
 
         // Create promoted piece - convert Color to Player
         Player player = color == Color.WHITE ? Player.WHITE : Player.BLACK;
-        Piece promotedPiece = new Piece(promotionType, player, true);
+        Piece promotedPiece = Piece.of(promotionType, player);
 
         // Place promoted piece at destination
         board.setPiece(to, promotedPiece);
+
+        board.updateMoveState(Bitboards.NO_SQUARE, true);
     }
 }
 
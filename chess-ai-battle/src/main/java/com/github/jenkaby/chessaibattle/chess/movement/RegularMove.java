@@ -23,14 +23,19 @@ public class RegularMove extends AbstractChessMovement {
             throw new MissingPieceAtPositionException(from);
         }
 
-        // Mark piece as moved
-        piece.setHasMoved(true);
+        boolean captures = board.getPiece(to) != null;
 
         // Remove piece from source
         board.removePiece(from);
 
         // Place piece at destination (captures handled automatically by overwriting)
         board.setPiece(to, piece);
+
+        boolean isPawn = piece.getType() == PieceType.PAWN;
+        int enPassantSquare = isPawn && Math.abs(to.getRow() - from.getRow()) == 2
+                ? Bitboards.square((from.getRow() + to.getRow()) / 2, from.getCol())
+                : Bitboards.NO_SQUARE;
+        board.updateMoveState(enPassantSquare, isPawn || captures);
     }
 }
 
@@ -0,0 +1,115 @@
+package com.github.jenkaby.chessaibattle.chess.perft;
+
+import com.github.jenkaby.chessaibattle.chess.Board;
+import com.github.jenkaby.chessaibattle.chess.Move;
+import com.github.jenkaby.chessaibattle.chess.MoveGenerator;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Perft: counts leaf nodes of the legal move tree to a fixed depth.
+ * Comparing the counts with reference positions proves move generation and make/unmake correct,
+ * timing them measures raw rules-engine throughput.
+ * <p>
+ * The board is walked with {@link Board#makeMove(int)}/{@link Board#unmakeMove(int)} and is left unchanged.
+ * Leaves are counted in bulk: at depth 1 the number of legal moves is returned without making them.
+ */
+public final class Perft {
+
+    private Perft() {
+    }
+
+    public static long perft(Board board, int depth) {
+        if (depth < 1) {
+            return 1;
+        }
+        return perft(board, depth, new int[depth][MoveGenerator.MAX_MOVES]);
+    }
+
+    /**
+     * Node count for each legal root move keyed by its UCI notation; the values sum up to {@link #perft(Board, int)}.
+     * Comparing a divide with a reference engine locates the move a wrong count comes from.
+     */
+    public static Map<String, Long> divide(Board board, int depth) {
+        if (depth < 1) {
+            throw new IllegalArgumentException("Depth must be positive: " + depth);
+        }
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int count = MoveGenerator.generateLegalMoves(board, moves);
+        int[][] buffers = new int[depth][MoveGenerator.MAX_MOVES];
+
+        Map<String, Long> nodes = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            board.makeMove(moves[i]);
+            nodes.put(Move.toUci(moves[i]), depth == 1 ? 1L : perft(board, depth - 1, buffers));
+            board.unmakeMove(moves[i]);
+        }
+        return nodes;
+    }
+
+    /**
+     * Timed perft in the calling thread
+     */
+    public static PerftResult run(Board board, int depth) {
+        long start = System.nanoTime();
+        long nodes = perft(board, depth);
+        return new PerftResult(depth, nodes, System.nanoTime() - start);
+    }
+
+    /**
+     * Timed perft with root moves split across the executor; each task searches its own copy of the board
+     */
+    public static PerftResult run(Board board, int depth, ExecutorService executor) {
+        long start = System.nanoTime();
+        long nodes = depth <= 1 ? perft(board, depth) : parallelPerft(board, depth, executor);
+        return new PerftResult(depth, nodes, System.nanoTime() - start);
+    }
+
+    private static long parallelPerft(Board board, int depth, ExecutorService executor) {
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int count = MoveGenerator.generateLegalMoves(board, moves);
+
+        List<Future<Long>> futures = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Board child = board.copy();
+            child.makeMove(moves[i]);
+            futures.add(executor.submit(() -> perft(child, depth - 1)));
+        }
+
+        long nodes = 0;
+        try {
+            for (Future<Long> future : futures) {
+                nodes += future.get();
+            }
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Perft was interrupted", e);
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            throw new IllegalStateException("Perft task failed", e.getCause());
+        }
+        return nodes;
+    }
+
+    private static long perft(Board board, int depth, int[][] buffers) {
+        int[] moves = buffers[depth - 1];
+        int count = MoveGenerator.generateLegalMoves(board, moves);
+        if (depth == 1) {
+            return count;
+        }
+        long nodes = 0;
+        for (int i = 0; i < count; i++) {
+            board.makeMove(moves[i]);
+            nodes += perft(board, depth - 1, buffers);
+            board.unmakeMove(moves[i]);
+        }
+        return nodes;
+    }
+}
@@ -0,0 +1,14 @@
+package com.github.jenkaby.chessaibattle.chess.perft;
+
+/**
+ * Node count of a perft run and the time it took
+ */
+public record PerftResult(int depth, long nodes, long elapsedNanos) {
+
+    /**
+     * Nodes per second, 0 if the run was too fast to be measured
+     */
+    public long nodesPerSecond() {
+        return elapsedNanos == 0 ? 0 : (long) (nodes * 1e9 / elapsedNanos);
+    }
+}
@@ -3,17 +3,19 @@ package com.github.jenkaby.chessaibattle.config;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.jenkaby.chessaibattle.chess.BoardService;
 import com.github.jenkaby.chessaibattle.config.advisor.ChessRulesAdvisor;
+import com.github.jenkaby.chessaibattle.config.advisor.RateLimitAdvisor;
 import com.github.jenkaby.chessaibattle.model.AiChessMovement;
 import com.github.jenkaby.chessaibattle.model.Player;
+import com.github.jenkaby.chessaibattle.service.ModelCallScheduler;
 import lombok.RequiredArgsConstructor;
 import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.ai.chat.client.advisor.SimpleLoggerAdvisor;
 import org.springframework.ai.chat.client.advisor.StructuredOutputValidationAdvisor;
 import org.springframework.ai.chat.prompt.ChatOptions;
 import org.springframework.ai.chat.prompt.PromptTemplate;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.web.client.ResponseErrorHandler;
 
 import java.util.Map;
 
@@ -23,24 +25,25 @@ public class AiConfig {
 
     private static final SimpleLoggerAdvisor SIMPLE_LOGGER_ADVISOR = new SimpleLoggerAdvisor();
 
-    @Value("${app.white-player.model}")
-    private final String whitePlayerModel;
-    @Value("${app.black-player.model}")
-    private final String blackPlayerModel;
-
     private final ObjectMapper objectMapper;
+    private final ModelCallScheduler modelCallScheduler;
+    private final ModelRateLimitProperties modelRateLimitProperties;
 
     @Bean
-    public ChatClient whitePlayerClient(ChatClient.Builder builder) {
-        return createPlayerClient(builder, Player.WHITE, whitePlayerModel);
+    public PlayerClientFactory playerClientFactory(ChatClient.Builder builder) {
+        // every client gets its own builder, the defaults of one player must not leak into another
+        return (player, model) -> createPlayerClient(builder.clone(), player, model);
     }
 
+
+    /**
+     * Replaces the error handler of Spring AI, see {@link ModelResponseErrorHandler}
+     */
     @Bean
-    public ChatClient blackPlayerClient(ChatClient.Builder builder) {
-        return createPlayerClient(builder, Player.BLACK, blackPlayerModel);
+    public ResponseErrorHandler responseErrorHandler() {
+        return new ModelResponseErrorHandler();
     }
 
-
     @Bean
     public PromptTemplate promptTemplate() {
         return PromptTemplate.builder()
@@ -65,6 +68,11 @@ public class AiConfig {
                 .boardService(new BoardService())
                 .build();
 
+        var rateLimitAdvisor = RateLimitAdvisor.builder()
+                .modelCallScheduler(modelCallScheduler)
+                .estimatedCompletionTokens(modelRateLimitProperties.getEstimatedCompletionTokens())
+                .build();
+
         return builder
                 .defaultSystem(promptTemplate().render(Map.of("color", player)))
                 .defaultOptions(ChatOptions.builder()
@@ -72,7 +80,8 @@ public class AiConfig {
                         .model(model)
                         .build()
                 )
-                .defaultAdvisors(SIMPLE_LOGGER_ADVISOR, structuredValidatorAdvisor, chessRulesAdvisor)
+                .defaultAdvisors(SIMPLE_LOGGER_ADVISOR, structuredValidatorAdvisor, chessRulesAdvisor,
+                        rateLimitAdvisor)
                 .build();
     }
 }
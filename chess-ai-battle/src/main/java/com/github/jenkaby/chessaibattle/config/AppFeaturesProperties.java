@@ -6,6 +6,8 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 public class AppFeaturesProperties {
 
     private AiPlay aiPlay = new AiPlay();
+    private MovementStorage movementStorage = new MovementStorage();
+    private LegalMovesPrompt legalMovesPrompt = new LegalMovesPrompt();
 
     public AiPlay getAiPlay() {
         return aiPlay;
@@ -15,6 +17,22 @@ public class AppFeaturesProperties {
         this.aiPlay = aiPlay;
     }
 
+    public MovementStorage getMovementStorage() {
+        return movementStorage;
+    }
+
+    public void setMovementStorage(MovementStorage movementStorage) {
+        this.movementStorage = movementStorage;
+    }
+
+    public LegalMovesPrompt getLegalMovesPrompt() {
+        return legalMovesPrompt;
+    }
+
+    public void setLegalMovesPrompt(LegalMovesPrompt legalMovesPrompt) {
+        this.legalMovesPrompt = legalMovesPrompt;
+    }
+
     public static class AiPlay {
         private boolean enabled = false;
 
@@ -26,5 +44,51 @@ public class AppFeaturesProperties {
             this.enabled = enabled;
         }
     }
+
+    public static class LegalMovesPrompt {
+        /**
+         * List the legal moves of the position in the user message so the model does not have to guess them
+         */
+        private boolean enabled = false;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+    }
+
+    public static class MovementStorage {
+        /**
+         * documents - one movements document per ply, packed - one lap_moves document per lap
+         */
+        private Format format = Format.DOCUMENTS;
+        /**
+         * Copy laps stored as documents into the packed format on startup
+         */
+        private boolean migrateOnStartup = false;
+
+        public Format getFormat() {
+            return format;
+        }
+
+        public void setFormat(Format format) {
+            this.format = format;
+        }
+
+        public boolean isMigrateOnStartup() {
+            return migrateOnStartup;
+        }
+
+        public void setMigrateOnStartup(boolean migrateOnStartup) {
+            this.migrateOnStartup = migrateOnStartup;
+        }
+
+        public enum Format {
+            DOCUMENTS, PACKED
+        }
+    }
 }
 
@@ -0,0 +1,59 @@
+package com.github.jenkaby.chessaibattle.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.Map;
+
+@ConfigurationProperties(prefix = "app.lap-scheduler")
+public class LapSchedulerProperties {
+
+    /**
+     * Laps running at once on this node; further laps wait in the queue
+     */
+    private int maxConcurrentLaps = 200;
+    /**
+     * Laps running at once per model unless overridden in {@link #modelLimits}
+     */
+    private int maxConcurrentLapsPerModel = 50;
+    /**
+     * Per-model limits by model name, e.g. for models with a lower provider quota
+     */
+    private Map<String, Integer> modelLimits = Map.of();
+    /**
+     * Time given to running laps on shutdown before they are interrupted
+     */
+    private Duration shutdownTimeout = Duration.ofSeconds(30);
+
+    public int getMaxConcurrentLaps() {
+        return maxConcurrentLaps;
+    }
+
+    public void setMaxConcurrentLaps(int maxConcurrentLaps) {
+        this.maxConcurrentLaps = maxConcurrentLaps;
+    }
+
+    public int getMaxConcurrentLapsPerModel() {
+        return maxConcurrentLapsPerModel;
+    }
+
+    public void setMaxConcurrentLapsPerModel(int maxConcurrentLapsPerModel) {
+        this.maxConcurrentLapsPerModel = maxConcurrentLapsPerModel;
+    }
+
+    public Map<String, Integer> getModelLimits() {
+        return modelLimits;
+    }
+
+    public void setModelLimits(Map<String, Integer> modelLimits) {
+        this.modelLimits = modelLimits;
+    }
+
+    public Duration getShutdownTimeout() {
+        return shutdownTimeout;
+    }
+
+    public void setShutdownTimeout(Duration shutdownTimeout) {
+        this.shutdownTimeout = shutdownTimeout;
+    }
+}
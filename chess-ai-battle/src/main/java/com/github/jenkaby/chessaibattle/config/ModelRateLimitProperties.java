@@ -0,0 +1,113 @@
+package com.github.jenkaby.chessaibattle.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.Map;
+
+@ConfigurationProperties(prefix = "app.model-rate-limits")
+public class ModelRateLimitProperties {
+
+    /**
+     * Budget of a model without an entry in {@link #models}, 0 disables the limit
+     */
+    private Limit defaults = new Limit(500, 200_000);
+    /**
+     * Budgets by model name, should match the provider quota of the API key
+     */
+    private Map<String, Limit> models = Map.of();
+    /**
+     * Completion tokens reserved for a call before the actual usage is known
+     */
+    private int estimatedCompletionTokens = 1000;
+    /**
+     * First pause of a model after a rate-limit response; doubled on every further one
+     */
+    private Duration initialBackoff = Duration.ofSeconds(1);
+    private Duration maxBackoff = Duration.ofSeconds(60);
+    /**
+     * Repeats of a call rejected with a rate-limit response before the error is passed on
+     */
+    private int maxRetries = 3;
+
+    public Limit getLimit(String model) {
+        return models.getOrDefault(model, defaults);
+    }
+
+    public Limit getDefaults() {
+        return defaults;
+    }
+
+    public void setDefaults(Limit defaults) {
+        this.defaults = defaults;
+    }
+
+    public Map<String, Limit> getModels() {
+        return models;
+    }
+
+    public void setModels(Map<String, Limit> models) {
+        this.models = models;
+    }
+
+    public int getEstimatedCompletionTokens() {
+        return estimatedCompletionTokens;
+    }
+
+    public void setEstimatedCompletionTokens(int estimatedCompletionTokens) {
+        this.estimatedCompletionTokens = estimatedCompletionTokens;
+    }
+
+    public Duration getInitialBackoff() {
+        return initialBackoff;
+    }
+
+    public void setInitialBackoff(Duration initialBackoff) {
+        this.initialBackoff = initialBackoff;
+    }
+
+    public Duration getMaxBackoff() {
+        return maxBackoff;
+    }
+
+    public void setMaxBackoff(Duration maxBackoff) {
+        this.maxBackoff = maxBackoff;
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    public void setMaxRetries(int maxRetries) {
+        this.maxRetries = maxRetries;
+    }
+
+    public static class Limit {
+        private int requestsPerMinute;
+        private int tokensPerMinute;
+
+        public Limit() {
+        }
+
+        public Limit(int requestsPerMinute, int tokensPerMinute) {
+            this.requestsPerMinute = requestsPerMinute;
+            this.tokensPerMinute = tokensPerMinute;
+        }
+
+        public int getRequestsPerMinute() {
+            return requestsPerMinute;
+        }
+
+        public void setRequestsPerMinute(int requestsPerMinute) {
+            this.requestsPerMinute = requestsPerMinute;
+        }
+
+        public int getTokensPerMinute() {
+            return tokensPerMinute;
+        }
+
+        public void setTokensPerMinute(int tokensPerMinute) {
+            this.tokensPerMinute = tokensPerMinute;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.github.jenkaby.chessaibattle.config;
+
+import org.springframework.ai.retry.RetryUtils;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.web.client.DefaultResponseErrorHandler;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.io.IOException;
+import java.net.URI;
+
+/**
+ * Error handler of the model API client. A 429 is thrown as {@link HttpClientErrorException.TooManyRequests},
+ * which the model client does not retry; {@link com.github.jenkaby.chessaibattle.service.ModelCallScheduler}
+ * repeats the call within the rate limit of the model. Other errors are handled as by Spring AI.
+ */
+public class ModelResponseErrorHandler extends DefaultResponseErrorHandler {
+
+    @Override
+    public void handleError(URI url, HttpMethod method, ClientHttpResponse response) throws IOException {
+        if (response.getStatusCode().value() == HttpStatus.TOO_MANY_REQUESTS.value()) {
+            super.handleError(url, method, response);
+        }
+        RetryUtils.DEFAULT_RESPONSE_ERROR_HANDLER.handleError(url, method, response);
+    }
+}
@@ -0,0 +1,13 @@
+package com.github.jenkaby.chessaibattle.config;
+
+import com.github.jenkaby.chessaibattle.model.Player;
+import org.springframework.ai.chat.client.ChatClient;
+
+/**
+ * Creates the chat client of an AI player with the system prompt and advisors for the color
+ */
+@FunctionalInterface
+public interface PlayerClientFactory {
+
+    ChatClient create(Player player, String model);
+}
@@ -1,11 +1,10 @@
 package com.github.jenkaby.chessaibattle.config;
 
 import com.github.jenkaby.chessaibattle.chess.BoardService;
-import com.github.jenkaby.chessaibattle.model.Player;
-import com.github.jenkaby.chessaibattle.persistence.repository.MovementRepository;
+import com.github.jenkaby.chessaibattle.persistence.store.WriteBehindWriter;
 import com.github.jenkaby.chessaibattle.service.AiPlayerService;
-import com.github.jenkaby.chessaibattle.service.PlayerService;
-import org.springframework.ai.chat.client.ChatClient;
+import com.github.jenkaby.chessaibattle.service.BoardSnapshotService;
+import com.github.jenkaby.chessaibattle.service.PlayerServiceRegistry;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -18,12 +17,13 @@ public class PlayerConfig {
     }
 
     @Bean
-    public PlayerService whitePlayerService(ChatClient whitePlayerClient, MovementRepository movementRepository) {
-        return new AiPlayerService(whitePlayerClient, Player.WHITE, movementRepository, boardService());
-    }
-
-    @Bean
-    public PlayerService blackPlayerService(ChatClient blackPlayerClient, MovementRepository movementRepository) {
-        return new AiPlayerService(blackPlayerClient, Player.BLACK, movementRepository, boardService());
+    public PlayerServiceRegistry playerServiceRegistry(PlayerClientFactory playerClientFactory,
+                                                       WriteBehindWriter writeBehindWriter,
+                                                       BoardService boardService,
+                                                       BoardSnapshotService boardSnapshotService,
+                                                       AppFeaturesProperties appFeaturesProperties) {
+        return new PlayerServiceRegistry((player, model) -> new AiPlayerService(
+                playerClientFactory.create(player, model), player, writeBehindWriter, boardService,
+                boardSnapshotService, appFeaturesProperties.getLegalMovesPrompt().isEnabled()));
     }
 }
@@ -0,0 +1,91 @@
+package com.github.jenkaby.chessaibattle.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "app.write-behind")
+public class WriteBehindProperties {
+
+    /**
+     * Movements written in one bulk operation; a full batch is written right away
+     */
+    private int batchSize = 500;
+    /**
+     * Longest time a movement or lap update waits for its batch to fill up
+     */
+    private Duration flushInterval = Duration.ofMillis(200);
+    /**
+     * Movements waiting to be written; the game loops wait when the queue is full
+     */
+    private int queueCapacity = 10_000;
+    /**
+     * First pause after a failed write; doubled on every further failure in a row
+     */
+    private Duration retryBackoff = Duration.ofMillis(500);
+    private Duration maxRetryBackoff = Duration.ofSeconds(30);
+    /**
+     * Attempts of a write failing with a transient error, e.g. a lost connection, before it is dropped
+     */
+    private int maxAttempts = 10;
+    /**
+     * Time to wait for the pending writes when a game ends or the application shuts down
+     */
+    private Duration flushTimeout = Duration.ofSeconds(30);
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public Duration getFlushInterval() {
+        return flushInterval;
+    }
+
+    public void setFlushInterval(Duration flushInterval) {
+        this.flushInterval = flushInterval;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public Duration getRetryBackoff() {
+        return retryBackoff;
+    }
+
+    public void setRetryBackoff(Duration retryBackoff) {
+        this.retryBackoff = retryBackoff;
+    }
+
+    public Duration getMaxRetryBackoff() {
+        return maxRetryBackoff;
+    }
+
+    public void setMaxRetryBackoff(Duration maxRetryBackoff) {
+        this.maxRetryBackoff = maxRetryBackoff;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public void setMaxAttempts(int maxAttempts) {
+        this.maxAttempts = maxAttempts;
+    }
+
+    public Duration getFlushTimeout() {
+        return flushTimeout;
+    }
+
+    public void setFlushTimeout(Duration flushTimeout) {
+        this.flushTimeout = flushTimeout;
+    }
+}
@@ -2,26 +2,51 @@ package com.github.jenkaby.chessaibattle.config.advisor;
 
 import com.github.jenkaby.chessaibattle.chess.Board;
 import com.github.jenkaby.chessaibattle.chess.BoardService;
+import com.github.jenkaby.chessaibattle.chess.MoveGenerator;
+import com.github.jenkaby.chessaibattle.chess.SanFormatter;
+import com.github.jenkaby.chessaibattle.chess.SanMatcher;
 import com.github.jenkaby.chessaibattle.model.Player;
 import com.github.jenkaby.chessaibattle.persistence.entity.Movement;
 import lombok.RequiredArgsConstructor;
 
+import java.util.Arrays;
 import java.util.List;
+import java.util.stream.Collectors;
 
 @RequiredArgsConstructor
 public class ChessRuleValidator {
     private final BoardService boardService;
 
+    /**
+     * Validate the next movement of the player.
+     * The notation is first repaired against the legal moves: a unique match (UCI, missing capture marker,
+     * missing promotion piece, wrong check suffix) is valid and carries the canonical notation,
+     * several matches are reported as ambiguous. Anything else is invalid; {@link BoardService} only explains why,
+     * on a copy of the board, since it does not check castling rights or moves into and through check.
+     */
     public ValidationResponse validate(Board theCurrentBoard, Player player, String nextMoveNotation) {
+        if (theCurrentBoard.getCurrentTurn() == player) {
+            int[] moves = new int[MoveGenerator.MAX_MOVES];
+            int matched = SanMatcher.match(theCurrentBoard, nextMoveNotation, moves);
+            if (matched == 1) {
+                return ValidationResponse.asValid(SanFormatter.format(theCurrentBoard, moves[0]));
+            }
+            if (matched > 1) {
+                return ValidationResponse.asInvalid("Ambiguous movement, it matches " + Arrays.stream(moves, 0, matched)
+                        .mapToObj(move -> SanFormatter.format(theCurrentBoard, move))
+                        .collect(Collectors.joining(", ")), nextMoveNotation);
+            }
+        }
         try {
-            boardService.getCurrentBoard(theCurrentBoard, List.of(Movement.builder()
+            boardService.getCurrentBoard(theCurrentBoard.copy(), List.of(Movement.builder()
                     .notation(nextMoveNotation)
                     .player(player)
                     .build()));
-            return ValidationResponse.asValid(nextMoveNotation);
         } catch (IllegalArgumentException e) {
             return ValidationResponse.asInvalid(e.getMessage(), nextMoveNotation);
         }
+        return ValidationResponse.asInvalid("Movement " + nextMoveNotation + " is not a legal move of "
+                + player + " in this position", nextMoveNotation);
     }
 
     public record ValidationResponse(boolean isValid, String errorMessage, String notation) {
@@ -11,18 +11,27 @@ import org.slf4j.LoggerFactory;
 import org.springframework.ai.chat.client.ChatClientRequest;
 import org.springframework.ai.chat.client.ChatClientResponse;
 import org.springframework.ai.chat.client.advisor.api.*;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
 import org.springframework.ai.chat.prompt.Prompt;
 import org.springframework.ai.util.json.JsonParser;
 import org.springframework.util.Assert;
 import reactor.core.publisher.Flux;
 
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public final class ChessRulesAdvisor implements CallAdvisor, StreamAdvisor {
 
     private static final Logger logger = LoggerFactory.getLogger(ChessRulesAdvisor.class);
     public static final String BOARD_KEY = "board";
     public static final String NEXT_MOVE_PLAYER_KEY = "nextMovePlayer";
+    /**
+     * Optional {@link AtomicInteger} the advisor sets to the number of model calls made, retries included
+     */
+    public static final String ATTEMPTS_KEY = "attempts";
 
     private final int advisorOrder;
 
@@ -87,7 +96,9 @@ public final class ChessRulesAdvisor implements CallAdvisor, StreamAdvisor {
 
                 isValidationSuccess = validationResponse.isValid();
 
-                if (!isValidationSuccess) {
+                if (isValidationSuccess) {
+                    chatClientResponse = withNotation(chatClientResponse, validationResponse.notation());
+                } else {
 
                     logger.warn("The next movement is invalid: " + validationResponse);
 
@@ -105,6 +116,9 @@ public final class ChessRulesAdvisor implements CallAdvisor, StreamAdvisor {
         }
         while (!isValidationSuccess && repeatCounter <= this.maxRepeatAttempts);
 
+        if (chatClientRequest.context().get(ATTEMPTS_KEY) instanceof AtomicInteger attempts) {
+            attempts.set(repeatCounter);
+        }
         return chatClientResponse;
     }
 
@@ -130,6 +144,30 @@ public final class ChessRulesAdvisor implements CallAdvisor, StreamAdvisor {
         }
     }
 
+    /**
+     * Replace the notation in the response with the repaired one, so the canonical notation is stored
+     */
+    private ChatClientResponse withNotation(ChatClientResponse chatClientResponse, String notation) {
+        Generation generation = chatClientResponse.chatResponse().getResult();
+        try {
+            var movement = this.objectMapper.readValue(generation.getOutput().getText(), AiChessMovement.class);
+            if (notation == null || notation.equals(movement.notation())) {
+                return chatClientResponse;
+            }
+            logger.info("Repaired movement notation " + movement.notation() + " to " + notation);
+            var json = this.objectMapper.writeValueAsString(new AiChessMovement(notation, movement.reason()));
+            var repairedGeneration = new Generation(new AssistantMessage(json, generation.getOutput().getMetadata()),
+                    generation.getMetadata());
+            var chatResponse = ChatResponse.builder()
+                    .from(chatClientResponse.chatResponse())
+                    .generations(List.of(repairedGeneration))
+                    .build();
+            return chatClientResponse.mutate().chatResponse(chatResponse).build();
+        } catch (JsonProcessingException e) {
+            return chatClientResponse;
+        }
+    }
+
     @SuppressWarnings("null")
     @Override
     public Flux<ChatClientResponse> adviseStream(ChatClientRequest chatClientRequest,
@@ -0,0 +1,141 @@
+package com.github.jenkaby.chessaibattle.config.advisor;
+
+import com.github.jenkaby.chessaibattle.service.ModelCallScheduler;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.api.*;
+import org.springframework.ai.chat.metadata.RateLimit;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.util.Assert;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+
+/**
+ * Sends every model call through the {@link ModelCallScheduler}.
+ * The advisor sits right before the model, so repeated calls of the validation advisors are rate limited too.
+ */
+public final class RateLimitAdvisor implements CallAdvisor, StreamAdvisor {
+
+    public static final String LAP_ID_KEY = "lapId";
+
+    private final int advisorOrder;
+    private final ModelCallScheduler modelCallScheduler;
+    private final int estimatedCompletionTokens;
+
+    private RateLimitAdvisor(int advisorOrder, ModelCallScheduler modelCallScheduler, int estimatedCompletionTokens) {
+        Assert.isTrue(advisorOrder > BaseAdvisor.HIGHEST_PRECEDENCE && advisorOrder < BaseAdvisor.LOWEST_PRECEDENCE,
+                "advisorOrder must be between HIGHEST_PRECEDENCE and LOWEST_PRECEDENCE");
+        Assert.notNull(modelCallScheduler, "modelCallScheduler must not be null");
+        this.advisorOrder = advisorOrder;
+        this.modelCallScheduler = modelCallScheduler;
+        this.estimatedCompletionTokens = estimatedCompletionTokens;
+    }
+
+    @SuppressWarnings("null")
+    @Override
+    public String getName() {
+        return "Rate Limit Advisor";
+    }
+
+    @Override
+    public int getOrder() {
+        return this.advisorOrder;
+    }
+
+    @SuppressWarnings("null")
+    @Override
+    public ChatClientResponse adviseCall(ChatClientRequest chatClientRequest, CallAdvisorChain callAdvisorChain) {
+        var options = chatClientRequest.prompt().getOptions();
+        if (options == null || options.getModel() == null) {
+            return callAdvisorChain.nextCall(chatClientRequest);
+        }
+        String model = options.getModel();
+        String lapId = String.valueOf(chatClientRequest.context().getOrDefault(LAP_ID_KEY, ""));
+        // roughly four characters per token
+        int estimatedTokens = chatClientRequest.prompt().getContents().length() / 4 + estimatedCompletionTokens;
+
+        return modelCallScheduler.execute(model, lapId, estimatedTokens,
+                () -> {
+                    var response = callAdvisorChain.copy(this).nextCall(chatClientRequest);
+                    pauseOnExhaustedQuota(model, response);
+                    return response;
+                },
+                RateLimitAdvisor::usedTokens);
+    }
+
+    private void pauseOnExhaustedQuota(String model, ChatClientResponse response) {
+        if (response.chatResponse() == null) {
+            return;
+        }
+        RateLimit rateLimit = response.chatResponse().getMetadata().getRateLimit();
+        // providers without rate-limit headers report zero limits
+        if (rateLimit == null || rateLimit.getRequestsLimit() == null || rateLimit.getRequestsLimit() <= 0) {
+            return;
+        }
+        Duration pause = Duration.ZERO;
+        if (rateLimit.getRequestsRemaining() != null && rateLimit.getRequestsRemaining() == 0
+                && rateLimit.getRequestsReset() != null) {
+            pause = rateLimit.getRequestsReset();
+        }
+        if (rateLimit.getTokensRemaining() != null && rateLimit.getTokensRemaining() < estimatedCompletionTokens
+                && rateLimit.getTokensReset() != null && rateLimit.getTokensReset().compareTo(pause) > 0) {
+            pause = rateLimit.getTokensReset();
+        }
+        if (pause.isPositive()) {
+            modelCallScheduler.pause(model, pause);
+        }
+    }
+
+    private static int usedTokens(ChatClientResponse response) {
+        if (response.chatResponse() == null) {
+            return 0;
+        }
+        Usage usage = response.chatResponse().getMetadata().getUsage();
+        return usage == null || usage.getTotalTokens() == null ? 0 : usage.getTotalTokens();
+    }
+
+    @SuppressWarnings("null")
+    @Override
+    public Flux<ChatClientResponse> adviseStream(ChatClientRequest chatClientRequest,
+                                                 StreamAdvisorChain streamAdvisorChain) {
+
+        return Flux.error(new UnsupportedOperationException(
+                "The " + getName() + " does not support streaming."));
+    }
+
+    public static RateLimitAdvisor.Builder builder() {
+        return new RateLimitAdvisor.Builder();
+    }
+
+    public final static class Builder {
+
+        // right before the model call, after the validation advisors
+        private int advisorOrder = BaseAdvisor.LOWEST_PRECEDENCE - 1000;
+
+        private ModelCallScheduler modelCallScheduler;
+        private int estimatedCompletionTokens = 1000;
+
+        private Builder() {
+        }
+
+        public RateLimitAdvisor.Builder advisorOrder(int advisorOrder) {
+            this.advisorOrder = advisorOrder;
+            return this;
+        }
+
+        public RateLimitAdvisor.Builder modelCallScheduler(ModelCallScheduler modelCallScheduler) {
+            this.modelCallScheduler = modelCallScheduler;
+            return this;
+        }
+
+        public RateLimitAdvisor.Builder estimatedCompletionTokens(int estimatedCompletionTokens) {
+            this.estimatedCompletionTokens = estimatedCompletionTokens;
+            return this;
+        }
+
+        public RateLimitAdvisor build() {
+            return new RateLimitAdvisor(this.advisorOrder, this.modelCallScheduler, this.estimatedCompletionTokens);
+        }
+    }
+}
@@ -1,9 +1,11 @@
 package com.github.jenkaby.chessaibattle.controller;
 
 
-import com.github.jenkaby.chessaibattle.chess.BoardService;
 import com.github.jenkaby.chessaibattle.persistence.entity.Movement;
-import com.github.jenkaby.chessaibattle.persistence.repository.MovementRepository;
+import com.github.jenkaby.chessaibattle.persistence.store.MovementStore;
+import com.github.jenkaby.chessaibattle.service.BoardSnapshotService;
+import com.github.jenkaby.chessaibattle.service.GameSessionRegistry;
+import com.github.jenkaby.chessaibattle.service.LapBoardCache;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.MediaType;
@@ -19,22 +21,29 @@ public class ChessBoardController {
 
     private static final Integer UNLIMITED_MOVES = -1;
 
-    private final BoardService boardService;
-    private final MovementRepository movementRepository;
+    private final BoardSnapshotService boardSnapshotService;
+    private final MovementStore movementStore;
+    private final LapBoardCache lapBoardCache;
+    private final GameSessionRegistry gameSessions;
 
     @GetMapping(value = "/laps/{lapId}/text", produces = MediaType.TEXT_PLAIN_VALUE)
     public String getChessBoardText(@PathVariable("lapId") String lapId,
                                     @RequestParam(value = "count", required = false) Integer count) {
         log.info("ChessBoardController.getChessBoardText lapId: {}", lapId);
-        List<Movement> allMoves = movementRepository.findAllByLapIdOrderByMovedAt(lapId);
-        log.info("Found {} movements for lapId: {}", allMoves.size(), lapId);
 
-        // If count is provided and not -1 (unlimited), limit the moves
-        List<Movement> movements = (count != null && !count.equals(UNLIMITED_MOVES))
-                ? allMoves.stream().limit(count).toList()
-                : allMoves;
+        // If count is provided and not -1 (unlimited), restore the board after count moves from the nearest snapshot
+        if (count != null && !count.equals(UNLIMITED_MOVES)) {
+            return boardSnapshotService.getBoardAt(lapId, count).toSimpleString();
+        }
+
+        // a lap being played has its board in memory
+        var session = gameSessions.find(lapId);
+        if (session.isPresent()) {
+            return session.get().getBoard().toSimpleString();
+        }
 
-        var board = boardService.getCurrentBoard(movements);
-        return board.toSimpleString();
+        List<Movement> allMoves = movementStore.findAllByLapId(lapId);
+        log.info("Found {} movements for lapId: {}", allMoves.size(), lapId);
+        return lapBoardCache.getBoard(lapId, allMoves).toSimpleString();
     }
 }
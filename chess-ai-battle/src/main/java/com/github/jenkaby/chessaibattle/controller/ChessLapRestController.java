@@ -2,10 +2,14 @@ package com.github.jenkaby.chessaibattle.controller;
 
 import com.github.jenkaby.chessaibattle.config.AppFeaturesProperties;
 import com.github.jenkaby.chessaibattle.controller.payload.GameStatusRequest;
+import com.github.jenkaby.chessaibattle.controller.payload.ReplayControlRequest;
 import com.github.jenkaby.chessaibattle.model.GameStatus;
 import com.github.jenkaby.chessaibattle.model.LapDto;
+import com.github.jenkaby.chessaibattle.model.ReplayDto;
 import com.github.jenkaby.chessaibattle.persistence.entity.Lap;
 import com.github.jenkaby.chessaibattle.service.GameService;
+import com.github.jenkaby.chessaibattle.service.LapEventHub;
+import com.github.jenkaby.chessaibattle.service.LapScheduler;
 import com.github.jenkaby.chessaibattle.service.LapService;
 import com.github.jenkaby.chessaibattle.service.ReplayChessGameService;
 import lombok.RequiredArgsConstructor;
@@ -19,7 +23,8 @@ import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.io.IOException;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
 
 @Slf4j
 @RequiredArgsConstructor
@@ -28,10 +33,11 @@ import java.util.concurrent.ExecutorService;
 public class ChessLapRestController {
 
     private final GameService gameService;
-    private final ExecutorService executorService;
+    private final LapScheduler lapScheduler;
     private final ReplayChessGameService replayChessGameService;
     private final LapService lapService;
     private final AppFeaturesProperties appFeaturesProperties;
+    private final LapEventHub lapEventHub;
 
     @PutMapping(path = "/{lapId}",
             consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
@@ -49,8 +55,9 @@ public class ChessLapRestController {
     }
 
     @GetMapping(path = "/{lapId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
-    public ResponseEntity<SseEmitter> streamChessUpdates(@PathVariable("lapId") String lapId) {
-        log.info("Requesting SSE for lap {}", lapId);
+    public ResponseEntity<SseEmitter> streamChessUpdates(@PathVariable("lapId") String lapId,
+                                                         @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        log.info("Requesting SSE for lap {}, last event {}", lapId, lastEventId);
 
         if (!appFeaturesProperties.getAiPlay().isEnabled()) {
             log.warn("AI play feature is disabled. Rejecting SSE request for lap {}", lapId);
@@ -59,49 +66,68 @@ public class ChessLapRestController {
 
         var emitter = new SseEmitter(0L); // No timeout
 
-        setupEmitter(lapId, emitter);
-
-        executorService.submit(() -> {
-            try {
-                gameService.updateGame(emitter, lapId, GameStatus.START);
-            } catch (IOException e) {
-                log.error("Error during game execution for lapId {}: {}", lapId, e.getMessage(), e);
-                emitter.completeWithError(e);
-            } catch (Exception e) {
-                log.error("Unexpected error during game execution for lapId {}: {}", lapId, e.getMessage(), e);
-                emitter.completeWithError(e);
-            }
-        });
+        // the first spectator starts the game loop, the others watch the same loop
+        var producer = lapEventHub.watch(lapId, emitter, lastEventId);
+        if (producer.isEmpty()) {
+            log.info("Lap {} is already being played, watching it", lapId);
+            return ResponseEntity.ok(emitter);
+        }
+        var events = producer.get();
+        try {
+            lapScheduler.submitLap(lapId, lapService.getModels(lapId), () -> {
+                try {
+                    gameService.updateGame(events, lapId, GameStatus.START);
+                } catch (IOException e) {
+                    log.info("Game loop for lapId {} ended: {}", lapId, e.getMessage());
+                } catch (Exception e) {
+                    log.error("Unexpected error during game execution for lapId {}: {}", lapId, e.getMessage(), e);
+                } finally {
+                    events.complete();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            log.warn("Lap scheduler is shutting down. Rejecting SSE request for lap {}", lapId);
+            events.complete();
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
 
         return ResponseEntity.ok(emitter);
     }
 
     @GetMapping(path = "/{lapId}/replay", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
-    public SseEmitter replayGame(@PathVariable("lapId") String lapId, @RequestParam int speedMs) {
-        log.info("Requesting replay for lap {}, speed {}", lapId, speedMs);
+    public ResponseEntity<SseEmitter> replayGame(@PathVariable("lapId") String lapId, @RequestParam int speedMs,
+                                                 @RequestParam(value = "fromTurn", defaultValue = "1") int fromTurn,
+                                                 @RequestParam(value = "toTurn", required = false) Integer toTurn) {
+        log.info("Requesting replay for lap {}, speed {}, turns {}..{}", lapId, speedMs, fromTurn, toTurn);
 
         var emitter = new SseEmitter(0L); // No timeout
 
-        setupEmitter(lapId, emitter);
-
-        executorService.submit(() -> {
-            try {
-                replayChessGameService.emitMovementsForLap(emitter, lapId, speedMs);
-            } catch (IOException e) {
-                log.error("Error during replaying the lap {}: {}", lapId, e.getMessage(), e);
-                emitter.completeWithError(e);
-            } catch (Exception e) {
-                log.error("Unexpected error during game execution for lapId {}: {}", lapId, e.getMessage(), e);
-                emitter.completeWithError(e);
-            }
-        });
-
-        return emitter;
+        try {
+            replayChessGameService.startReplay(emitter, lapId, speedMs, fromTurn, toTurn);
+        } catch (IllegalArgumentException e) {
+            log.warn("Rejecting replay request for lap {}: {}", lapId, e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (RejectedExecutionException e) {
+            log.warn("Application is shutting down. Rejecting replay request for lap {}", lapId);
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+
+        return ResponseEntity.ok(emitter);
     }
 
-    private static void setupEmitter(String lapId, SseEmitter emitter) {
-        emitter.onCompletion(() -> log.info("SSE completed for lapId: {}", lapId));
-        emitter.onTimeout(() -> log.warn("SSE timeout for lapId: {}", lapId));
-        emitter.onError((ex) -> log.error("SSE error for lapId {}: {}", lapId, ex.getMessage()));
+    @PutMapping(path = "/{lapId}/replay/{replayId}",
+            consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Object> controlReplay(@PathVariable("lapId") String lapId,
+                                                @PathVariable("replayId") String replayId,
+                                                @RequestBody ReplayControlRequest request) {
+        log.info("Control replay {} of lap {}: paused {}, speed {}, turn {}",
+                replayId, lapId, request.paused(), request.speedMs(), request.turn());
+        try {
+            Optional<ReplayDto> replay = replayChessGameService.control(lapId, replayId,
+                    request.paused(), request.speedMs(), request.turn());
+            return replay.isPresent() ? ResponseEntity.ok(replay.get()) : ResponseEntity.notFound().build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
     }
 }
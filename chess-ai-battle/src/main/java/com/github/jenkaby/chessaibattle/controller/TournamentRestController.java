@@ -0,0 +1,51 @@
+package com.github.jenkaby.chessaibattle.controller;
+
+import com.github.jenkaby.chessaibattle.config.AppFeaturesProperties;
+import com.github.jenkaby.chessaibattle.controller.payload.CreateTournamentRequest;
+import com.github.jenkaby.chessaibattle.model.TournamentDto;
+import com.github.jenkaby.chessaibattle.service.TournamentService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@Slf4j
+@RequiredArgsConstructor
+@RequestMapping("/api/v1/tournaments")
+@RestController
+public class TournamentRestController {
+
+    private final TournamentService tournamentService;
+    private final AppFeaturesProperties appFeaturesProperties;
+
+    @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Object> createTournament(@RequestBody CreateTournamentRequest request) {
+        log.info("Create tournament between {} with {} games per pairing", request.models(), request.gamesPerPairing());
+
+        if (!appFeaturesProperties.getAiPlay().isEnabled()) {
+            log.warn("AI play feature is disabled. Rejecting tournament request");
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+
+        try {
+            TournamentDto tournament = tournamentService.create(request.models(), request.gamesPerPairing(),
+                    request.parallelLaps());
+            return ResponseEntity.status(HttpStatus.CREATED).body(tournament);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @GetMapping(path = "/{tournamentId}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<TournamentDto> getTournament(@PathVariable("tournamentId") String tournamentId) {
+        return ResponseEntity.of(tournamentService.getTournament(tournamentId));
+    }
+
+    @PostMapping(path = "/{tournamentId}/cancel", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<TournamentDto> cancelTournament(@PathVariable("tournamentId") String tournamentId) {
+        log.info("Cancel tournament {}", tournamentId);
+        return ResponseEntity.of(tournamentService.cancel(tournamentId));
+    }
+}
@@ -0,0 +1,13 @@
+package com.github.jenkaby.chessaibattle.controller.payload;
+
+import java.util.List;
+
+/**
+ * @param parallelLaps laps of the tournament played at once, the configured default if null
+ */
+public record CreateTournamentRequest(
+        List<String> models,
+        int gamesPerPairing,
+        Integer parallelLaps
+) {
+}
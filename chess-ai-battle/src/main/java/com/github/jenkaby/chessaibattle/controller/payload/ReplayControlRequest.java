@@ -0,0 +1,9 @@
+package com.github.jenkaby.chessaibattle.controller.payload;
+
+/**
+ * @param paused  pause or resume the replay, null to keep it as is
+ * @param speedMs new delay between movements, null to keep it as is
+ * @param turn    continue the replay after this turn, 0 for the initial position; null to keep the position
+ */
+public record ReplayControlRequest(Boolean paused, Integer speedMs, Integer turn) {
+}
@@ -8,6 +8,8 @@ public record ChessMovementEvent(
         String lapId,
         String movement,
         Player player,
-        String reason
+        String reason,
+        // position after the movement, sent by replays; null if it is not known
+        String fen
 ) {
 }
@@ -1,5 +1,6 @@
 package com.github.jenkaby.chessaibattle.model;
 
 public enum GameStatus {
-    START, STOP, PAUSE, CHECKMATE, DRAW
+    // FORFEIT: a player has made an illegal move, the opponent wins
+    START, STOP, PAUSE, CHECKMATE, DRAW, FORFEIT
 }
@@ -0,0 +1,19 @@
+package com.github.jenkaby.chessaibattle.model;
+
+import lombok.Builder;
+
+@Builder
+public record ReplayDto(
+        String replayId,
+        String lapId,
+        // movements of the lap shown so far
+        int turn,
+        // the replay ends after this turn
+        int toTurn,
+        int totalTurns,
+        // position after turn movements, null if it is not known
+        String fen,
+        int speedMs,
+        boolean paused,
+        boolean finished) {
+}
@@ -0,0 +1,22 @@
+package com.github.jenkaby.chessaibattle.model;
+
+import lombok.Builder;
+
+import java.time.Instant;
+import java.util.List;
+
+@Builder
+public record TournamentDto(
+        String tournamentId,
+        String status,
+        List<String> models,
+        int gamesPerPairing,
+        int parallelLaps,
+        int totalLaps,
+        int finishedLaps,
+        // laps stopped before a result, e.g. after a model kept making invalid moves
+        int abortedLaps,
+        List<TournamentStanding> standings,
+        Instant createdAt,
+        Instant updatedAt) {
+}
@@ -0,0 +1,16 @@
+package com.github.jenkaby.chessaibattle.model;
+
+import lombok.Builder;
+
+/**
+ * Results of a model in a tournament; a win scores 1 point and a draw half a point
+ */
+@Builder
+public record TournamentStanding(
+        String model,
+        int played,
+        int wins,
+        int draws,
+        int losses,
+        double points) {
+}
@@ -0,0 +1,5 @@
+package com.github.jenkaby.chessaibattle.model;
+
+public enum TournamentStatus {
+    RUNNING, FINISHED, CANCELLED
+}
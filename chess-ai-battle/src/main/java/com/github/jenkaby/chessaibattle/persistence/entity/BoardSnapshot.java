@@ -0,0 +1,24 @@
+package com.github.jenkaby.chessaibattle.persistence.entity;
+
+import lombok.Builder;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/**
+ * Position of a lap after the given number of plies, written every few plies as a replay checkpoint
+ */
+@Builder
+@Document(collection = "board_snapshots")
+@CompoundIndex(name = "lap_ply", def = "{'lapId': 1, 'ply': 1}", unique = true)
+public record BoardSnapshot(
+        @Id
+        String id,
+        String lapId,
+        int ply,
+        String fen,
+        Instant createdAt
+) {
+}
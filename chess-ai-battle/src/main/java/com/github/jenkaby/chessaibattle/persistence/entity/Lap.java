@@ -4,6 +4,7 @@ import com.github.jenkaby.chessaibattle.model.GameStatus;
 import com.github.jenkaby.chessaibattle.model.Player;
 import lombok.Builder;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.Field;
 
@@ -19,6 +20,10 @@ public record Lap(
         PlayerSettings whitePlayerSettings,
         PlayerSettings blackPlayerSettings,
 
+        // null for laps started on their own
+        @Indexed(sparse = true)
+        String tournamentId,
+
         @Field
         GameStatus status,
 
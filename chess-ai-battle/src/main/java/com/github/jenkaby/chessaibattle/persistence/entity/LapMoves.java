@@ -0,0 +1,52 @@
+package com.github.jenkaby.chessaibattle.persistence.entity;
+
+import com.github.jenkaby.chessaibattle.chess.PackedMove;
+import lombok.Builder;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * All movements of a lap in one document: moves packed two bytes per ply
+ * (see {@link PackedMove}) with reasons, times and attempts in parallel arrays.
+ * The moves written with the document are in {@code moves}, every later append pushes its moves as one chunk.
+ */
+@Builder
+@Document(collection = "lap_moves")
+public record LapMoves(
+        @Id
+        String id,
+        @Indexed(unique = true)
+        String lapId,
+        int plyCount,
+        byte[] moves,
+        List<byte[]> moveChunks,
+        List<String> reasons,
+        List<Instant> movedAt,
+        List<Integer> attempts
+) {
+
+    /**
+     * Packed moves of all plies, oldest first
+     */
+    public byte[] allMoves() {
+        if (moveChunks == null || moveChunks.isEmpty()) {
+            return moves == null ? new byte[0] : moves;
+        }
+        byte[] all = new byte[plyCount * PackedMove.BYTES];
+        int length = 0;
+        if (moves != null) {
+            System.arraycopy(moves, 0, all, 0, Math.min(moves.length, all.length));
+            length = Math.min(moves.length, all.length);
+        }
+        for (byte[] chunk : moveChunks) {
+            int copied = Math.min(chunk.length, all.length - length);
+            System.arraycopy(chunk, 0, all, length, copied);
+            length += copied;
+        }
+        return all;
+    }
+}
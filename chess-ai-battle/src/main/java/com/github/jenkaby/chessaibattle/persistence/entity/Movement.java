@@ -7,7 +7,7 @@ import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.Instant;
 
-@Builder
+@Builder(toBuilder = true)
 @Document(collection = "movements")
 public record Movement(
         @Id
@@ -16,6 +16,10 @@ public record Movement(
         Player player,
         String notation,
         String reason,
-        Instant movedAt
+        Instant movedAt,
+        // position after the movement in FEN, null for movements saved before positions were recorded
+        String fen,
+        // model calls made for the movement including invalid-move retries, null if not recorded
+        Integer attempts
 ) {
 }
@@ -0,0 +1,31 @@
+package com.github.jenkaby.chessaibattle.persistence.entity;
+
+import com.github.jenkaby.chessaibattle.model.TournamentStatus;
+import lombok.Builder;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Round robin between models: every pair of models plays the given number of laps, alternating colors.
+ * Results are not stored here, they are read from the laps with the tournament id.
+ */
+@Builder(toBuilder = true)
+@Document(collection = "tournaments")
+public record Tournament(
+        @Id
+        String id,
+        @Indexed(unique = true)
+        String tournamentId,
+        List<String> models,
+        int gamesPerPairing,
+        int parallelLaps,
+        TournamentStatus status,
+        List<String> lapIds,
+        Instant createdAt,
+        Instant updatedAt
+) {
+}
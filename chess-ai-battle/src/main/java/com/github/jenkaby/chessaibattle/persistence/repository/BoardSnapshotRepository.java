@@ -0,0 +1,11 @@
+package com.github.jenkaby.chessaibattle.persistence.repository;
+
+import com.github.jenkaby.chessaibattle.persistence.entity.BoardSnapshot;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+import java.util.Optional;
+
+public interface BoardSnapshotRepository extends MongoRepository<BoardSnapshot, String> {
+
+    Optional<BoardSnapshot> findFirstByLapIdAndPlyLessThanEqualOrderByPlyDesc(String lapId, int ply);
+}
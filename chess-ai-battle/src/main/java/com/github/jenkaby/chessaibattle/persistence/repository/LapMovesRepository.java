@@ -0,0 +1,13 @@
+package com.github.jenkaby.chessaibattle.persistence.repository;
+
+import com.github.jenkaby.chessaibattle.persistence.entity.LapMoves;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+import java.util.Optional;
+
+public interface LapMovesRepository extends MongoRepository<LapMoves, String> {
+
+    Optional<LapMoves> findDistinctByLapId(String lapId);
+
+    boolean existsByLapId(String lapId);
+}
@@ -0,0 +1,15 @@
+package com.github.jenkaby.chessaibattle.persistence.repository;
+
+import com.github.jenkaby.chessaibattle.model.TournamentStatus;
+import com.github.jenkaby.chessaibattle.persistence.entity.Tournament;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface TournamentRepository extends MongoRepository<Tournament, String> {
+
+    Optional<Tournament> findDistinctByTournamentId(String tournamentId);
+
+    List<Tournament> findAllByStatus(TournamentStatus status);
+}
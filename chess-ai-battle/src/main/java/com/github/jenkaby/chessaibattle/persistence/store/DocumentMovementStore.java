@@ -0,0 +1,63 @@
+package com.github.jenkaby.chessaibattle.persistence.store;
+
+import com.github.jenkaby.chessaibattle.persistence.entity.Movement;
+import com.github.jenkaby.chessaibattle.persistence.repository.MovementRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * One {@code movements} document per ply
+ */
+@RequiredArgsConstructor
+@Component
+@ConditionalOnProperty(prefix = "app.features.movement-storage", name = "format", havingValue = "documents", matchIfMissing = true)
+public class DocumentMovementStore implements MovementStore {
+
+    private static final int DUPLICATE_KEY = 11000;
+
+    private final MovementRepository movementRepository;
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public List<Movement> findAllByLapId(String lapId) {
+        return movementRepository.findAllByLapIdOrderByMovedAt(lapId);
+    }
+
+    @Override
+    public List<Movement> findRange(String lapId, int fromPly, int limit) {
+        if (limit <= 0) {
+            return List.of();
+        }
+        Query query = Query.query(Criteria.where("lapId").is(lapId))
+                .with(Sort.by("movedAt"))
+                .skip(fromPly)
+                .limit(limit);
+        return mongoTemplate.find(query, Movement.class);
+    }
+
+    @Override
+    public void appendAll(List<PendingMovement> movements) {
+        if (movements.isEmpty()) {
+            return;
+        }
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Movement.class);
+        movements.forEach(pending -> bulk.insert(pending.movement()));
+        try {
+            bulk.execute();
+        } catch (BulkOperationException e) {
+            // ids are assigned before the first attempt, movements inserted by it come back as duplicates
+            if (!e.getErrors().stream().allMatch(error -> error.getCode() == DUPLICATE_KEY)) {
+                throw e;
+            }
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.github.jenkaby.chessaibattle.persistence.store;
+
+import com.github.jenkaby.chessaibattle.chess.Board;
+import com.github.jenkaby.chessaibattle.chess.movement.ChessMovement;
+import com.github.jenkaby.chessaibattle.persistence.entity.Movement;
+
+import java.util.List;
+
+/**
+ * Storage of lap movements. The format is chosen by {@code app.features.movement-storage.format}:
+ * one document per ply ({@code documents}, default) or one packed document per lap ({@code packed}).
+ */
+public interface MovementStore {
+
+    /**
+     * All movements of the lap in the order they were played
+     */
+    List<Movement> findAllByLapId(String lapId);
+
+    /**
+     * Movements of the lap starting at the given ply
+     *
+     * @param fromPly number of movements to skip
+     * @param limit   maximum number of movements to return
+     */
+    List<Movement> findRange(String lapId, int fromPly, int limit);
+
+    /**
+     * Append movements of one or more laps in a single bulk write.
+     * Movements stored by an earlier attempt are skipped, so a failed batch can be appended again.
+     *
+     * @param movements movements of each lap in the order they were played
+     */
+    void appendAll(List<PendingMovement> movements);
+
+    /**
+     * Check that the movement can be stored, before it is queued for writing
+     *
+     * @param chessMovement the parsed movement or null if it could not be applied to the board
+     * @param before        board before the movement, not modified
+     * @throws IllegalArgumentException if the movement cannot be stored
+     */
+    default void validate(Movement movement, ChessMovement chessMovement, Board before) {
+    }
+}
@@ -0,0 +1,202 @@
+package com.github.jenkaby.chessaibattle.persistence.store;
+
+import com.github.jenkaby.chessaibattle.chess.Board;
+import com.github.jenkaby.chessaibattle.chess.Fen;
+import com.github.jenkaby.chessaibattle.chess.MoveGenerator;
+import com.github.jenkaby.chessaibattle.chess.PackedMove;
+import com.github.jenkaby.chessaibattle.chess.SanFormatter;
+import com.github.jenkaby.chessaibattle.chess.movement.ChessMovement;
+import com.github.jenkaby.chessaibattle.model.Player;
+import com.github.jenkaby.chessaibattle.persistence.entity.BoardSnapshot;
+import com.github.jenkaby.chessaibattle.persistence.entity.LapMoves;
+import com.github.jenkaby.chessaibattle.persistence.entity.Movement;
+import com.github.jenkaby.chessaibattle.persistence.repository.BoardSnapshotRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * One {@code lap_moves} document per lap with moves packed into 16 bits each.
+ * Notations are not stored: movements are read back in canonical SAN by replaying the packed moves from the
+ * nearest board snapshot, and the last movement read carries the FEN of its position. Appends push the new
+ * moves to the document without reading or rewriting the stored ones.
+ */
+@Slf4j
+@RequiredArgsConstructor
+@Component
+@ConditionalOnProperty(prefix = "app.features.movement-storage", name = "format", havingValue = "packed")
+public class PackedMovementStore implements MovementStore {
+
+    private final MongoTemplate mongoTemplate;
+    private final BoardSnapshotRepository boardSnapshotRepository;
+
+    @Override
+    public List<Movement> findAllByLapId(String lapId) {
+        return findRange(lapId, 0, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<Movement> findRange(String lapId, int fromPly, int limit) {
+        LapMoves lapMoves = mongoTemplate.findOne(byLapId(lapId), LapMoves.class);
+        if (lapMoves == null || limit <= 0 || fromPly >= lapMoves.plyCount()) {
+            return List.of();
+        }
+        int toPly = (int) Math.min((long) fromPly + limit, lapMoves.plyCount());
+        // plies before the snapshot are not replayed
+        Optional<BoardSnapshot> snapshot = fromPly == 0
+                ? Optional.empty()
+                : boardSnapshotRepository.findFirstByLapIdAndPlyLessThanEqualOrderByPlyDesc(lapId, fromPly);
+        return decode(lapMoves, snapshot.orElse(null), fromPly, toPly);
+    }
+
+    /**
+     * Only legal moves can be stored: a packed move is read back by matching it against the legal moves of the
+     * position, so a move the generator rejects would make the lap unreadable
+     */
+    @Override
+    public void validate(Movement movement, ChessMovement chessMovement, Board before) {
+        if (chessMovement == null) {
+            throw new IllegalArgumentException("Movement " + movement.notation() + " of lap " + movement.lapId()
+                    + " is not a legal move and cannot be stored in packed format");
+        }
+        try {
+            PackedMove.resolve(before, pack(chessMovement), new int[MoveGenerator.MAX_MOVES]);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Movement " + movement.notation() + " of lap " + movement.lapId()
+                    + " is not a legal move and cannot be stored in packed format: " + e.getMessage(), e);
+        }
+    }
+
+    static short pack(ChessMovement chessMovement) {
+        return PackedMove.pack(chessMovement.getFrom().getIndex(), chessMovement.getTo().getIndex(),
+                chessMovement.getPromotionType());
+    }
+
+    @Override
+    public void appendAll(List<PendingMovement> movements) {
+        if (movements.isEmpty()) {
+            return;
+        }
+        Map<String, List<PendingMovement>> byLap = movements.stream()
+                .collect(Collectors.groupingBy(pending -> pending.movement().lapId(), LinkedHashMap::new, Collectors.toList()));
+
+        Query current = Query.query(Criteria.where("lapId").in(byLap.keySet()));
+        current.fields().include("lapId", "plyCount");
+        Map<String, LapMoves> stored = mongoTemplate.find(current, LapMoves.class).stream()
+                .collect(Collectors.toMap(LapMoves::lapId, Function.identity()));
+
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, LapMoves.class);
+        int updates = 0;
+        int expectedMatches = 0;
+        for (Map.Entry<String, List<PendingMovement>> entry : byLap.entrySet()) {
+            String lapId = entry.getKey();
+            LapMoves lapMoves = stored.get(lapId);
+            int plyCount = lapMoves == null ? 0 : lapMoves.plyCount();
+            // movements stored by an earlier attempt of the batch are skipped
+            List<PendingMovement> pending = entry.getValue().stream()
+                    .filter(movement -> movement.ply() > plyCount)
+                    .toList();
+            if (pending.isEmpty()) {
+                continue;
+            }
+            if (pending.getFirst().ply() != plyCount + 1) {
+                throw new IllegalStateException("Lap " + lapId + " has " + plyCount + " stored movements, movement "
+                        + pending.getFirst().ply() + " cannot be appended");
+            }
+
+            byte[] moves = new byte[pending.size() * PackedMove.BYTES];
+            List<String> reasons = new ArrayList<>(pending.size());
+            List<Instant> movedAt = new ArrayList<>(pending.size());
+            List<Integer> attempts = new ArrayList<>(pending.size());
+            for (int i = 0; i < pending.size(); i++) {
+                Movement movement = pending.get(i).movement();
+                ChessMovement chessMovement = pending.get(i).chessMovement();
+                if (chessMovement == null) {
+                    throw new IllegalArgumentException("Movement " + movement.notation() + " of lap " + lapId
+                            + " is not a legal move and cannot be stored in packed format");
+                }
+                PackedMove.write(moves, i, pack(chessMovement));
+                reasons.add(movement.reason());
+                movedAt.add(movement.movedAt());
+                attempts.add(movement.attempts());
+            }
+
+            Update update = new Update().inc("plyCount", pending.size());
+            update.push("reasons").each(reasons.toArray());
+            update.push("movedAt").each(movedAt.toArray());
+            update.push("attempts").each(attempts.toArray());
+            if (lapMoves == null) {
+                update.set("moves", moves);
+                bulk.upsert(byLapId(lapId), update);
+            } else {
+                update.push("moveChunks", moves);
+                // the ply count guards against a concurrent append in between
+                bulk.updateOne(Query.query(Criteria.where("lapId").is(lapId).and("plyCount").is(plyCount)), update);
+                expectedMatches++;
+            }
+            updates++;
+        }
+        if (updates == 0) {
+            return;
+        }
+        if (bulk.execute().getMatchedCount() < expectedMatches) {
+            throw new IllegalStateException("Movements of laps " + byLap.keySet() + " were modified concurrently");
+        }
+    }
+
+    /**
+     * @param snapshot position at or before fromPly to start the replay from, null for the initial position
+     */
+    private List<Movement> decode(LapMoves lapMoves, BoardSnapshot snapshot, int fromPly, int toPly) {
+        List<Movement> movements = new ArrayList<>(Math.max(toPly - fromPly, 0));
+        int[] buffer = new int[MoveGenerator.MAX_MOVES];
+        int[] sanBuffer = new int[MoveGenerator.MAX_MOVES];
+        byte[] packedMoves = lapMoves.allMoves();
+        Board board = snapshot == null ? new Board() : Fen.parse(snapshot.fen());
+        int startPly = snapshot == null ? 0 : snapshot.ply();
+        for (int ply = startPly; ply < toPly; ply++) {
+            if (ply > startPly && (ply - startPly) % Board.MAX_UNDO_DEPTH == 0) {
+                // moves are never taken back here, a copy starts with an empty undo stack
+                board = board.copy();
+            }
+            int move = PackedMove.resolve(board, PackedMove.read(packedMoves, ply), buffer);
+            String notation = ply >= fromPly ? SanFormatter.format(board, move, sanBuffer) : null;
+            board.makeMove(move);
+            if (notation != null) {
+                movements.add(Movement.builder()
+                        .lapId(lapMoves.lapId())
+                        .player(ply % 2 == 0 ? Player.WHITE : Player.BLACK)
+                        .notation(notation)
+                        .reason(element(lapMoves.reasons(), ply))
+                        .movedAt(element(lapMoves.movedAt(), ply))
+                        .attempts(element(lapMoves.attempts(), ply))
+                        .fen(ply == toPly - 1 ? Fen.format(board) : null)
+                        .build());
+            }
+        }
+        return movements;
+    }
+
+    private static <T> T element(List<T> values, int index) {
+        return values != null && index < values.size() ? values.get(index) : null;
+    }
+
+    private static Query byLapId(String lapId) {
+        return Query.query(Criteria.where("lapId").is(lapId));
+    }
+}
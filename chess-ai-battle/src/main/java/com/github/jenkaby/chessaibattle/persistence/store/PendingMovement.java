@@ -0,0 +1,13 @@
+package com.github.jenkaby.chessaibattle.persistence.store;
+
+import com.github.jenkaby.chessaibattle.chess.movement.ChessMovement;
+import com.github.jenkaby.chessaibattle.persistence.entity.Movement;
+
+/**
+ * Movement waiting to be written by the {@link WriteBehindWriter}
+ *
+ * @param chessMovement the parsed movement or null if it could not be applied to the board
+ * @param ply           number of the movement in its lap, starting with 1
+ */
+public record PendingMovement(Movement movement, ChessMovement chessMovement, int ply) {
+}
@@ -0,0 +1,513 @@
+package com.github.jenkaby.chessaibattle.persistence.store;
+
+import com.github.jenkaby.chessaibattle.chess.Board;
+import com.github.jenkaby.chessaibattle.chess.movement.ChessMovement;
+import com.github.jenkaby.chessaibattle.config.WriteBehindProperties;
+import com.github.jenkaby.chessaibattle.persistence.entity.BoardSnapshot;
+import com.github.jenkaby.chessaibattle.persistence.entity.Lap;
+import com.github.jenkaby.chessaibattle.persistence.entity.Movement;
+import com.mongodb.MongoException;
+import com.mongodb.MongoSocketException;
+import com.mongodb.MongoTimeoutException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Takes movement inserts and lap updates of all laps off the turn loop and writes them in bulk.
+ * <p>
+ * Movements and lap updates wait in one bounded queue, so a lap update is never written before the movements
+ * queued ahead of it, e.g. the final status of a lap before its last movement; of the updates of a lap in one
+ * batch only the latest one is written.
+ * A batch is written when it is full, when the flush interval is over or when a flush is requested,
+ * e.g. at the end of a game. Writes failing with a transient error are repeated with a growing pause up to
+ * the configured attempts; the stores skip what an earlier attempt has already written. A batch failing with
+ * any other error is written lap by lap, so one lap that cannot be written does not hold back the others.
+ * Writes that cannot be made are logged and dropped, see the {@code chess.writes.dropped} counter; the lap is then
+ * marked failed, its later movements are dropped as well and {@link #flush(String)} reports the failure until
+ * it is cleared.
+ * Board snapshots are written after the movements of the batch, a snapshot that already exists is kept;
+ * a snapshot that cannot be written is dropped right away, the board is then replayed from an earlier one.
+ * Pending writes are flushed on shutdown.
+ */
+@Slf4j
+@Component
+public class WriteBehindWriter implements DisposableBean {
+
+    // attempts of a write failing with a transient error once the application is shutting down
+    private static final int SHUTDOWN_ATTEMPTS = 3;
+    private static final String RETRYABLE_WRITE_ERROR_LABEL = "RetryableWriteError";
+    private static final int DUPLICATE_KEY = 11000;
+
+    private final MovementStore movementStore;
+    private final MongoTemplate mongoTemplate;
+    private final WriteBehindProperties properties;
+    private final BlockingQueue<Queued> queue;
+    private final AtomicInteger queuedLaps = new AtomicInteger();
+    private final Map<String, BoardSnapshot> snapshots = new ConcurrentHashMap<>();
+    private final Map<String, RuntimeException> failedLaps = new ConcurrentHashMap<>();
+    private final Counter droppedMovements;
+    private final Counter droppedLaps;
+    private final Counter droppedSnapshots;
+    private final AtomicLong sequence = new AtomicLong();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition written = lock.newCondition();
+    private long writtenSequence;
+    private final Thread flusher;
+    private volatile boolean stopping;
+    private volatile boolean stopped;
+
+    public WriteBehindWriter(MovementStore movementStore, MongoTemplate mongoTemplate,
+                             WriteBehindProperties properties, MeterRegistry meterRegistry) {
+        this.movementStore = movementStore;
+        this.mongoTemplate = mongoTemplate;
+        this.properties = properties;
+        this.queue = new ArrayBlockingQueue<>(properties.getQueueCapacity());
+        Gauge.builder("chess.writes.queued", queue, BlockingQueue::size)
+                .description("Movements waiting to be written")
+                .register(meterRegistry);
+        Gauge.builder("chess.writes.laps.queued", queuedLaps, AtomicInteger::get)
+                .description("Lap updates waiting to be written")
+                .register(meterRegistry);
+        this.droppedMovements = Counter.builder("chess.writes.dropped")
+                .description("Writes dropped after they could not be made")
+                .tag("type", "movement")
+                .register(meterRegistry);
+        this.droppedLaps = Counter.builder("chess.writes.dropped")
+                .description("Writes dropped after they could not be made")
+                .tag("type", "lap")
+                .register(meterRegistry);
+        this.droppedSnapshots = Counter.builder("chess.writes.dropped")
+                .description("Writes dropped after they could not be made")
+                .tag("type", "snapshot")
+                .register(meterRegistry);
+        this.flusher = Thread.ofVirtual().name("write-behind").start(this::run);
+    }
+
+    /**
+     * Queue a movement for writing, waiting while the queue is full
+     *
+     * @param chessMovement the parsed movement or null if it could not be applied to the board
+     * @param before        board before the movement, not modified
+     * @param ply           number of the movement in its lap, starting with 1
+     * @throws IllegalArgumentException if the movement cannot be stored, see {@link MovementStore#validate}
+     */
+    public void appendMovement(Movement movement, ChessMovement chessMovement, Board before, int ply) {
+        movementStore.validate(movement, chessMovement, before);
+        // the id is assigned up front so that a repeated bulk insert finds the documents of the failed one
+        if (movement.id() == null) {
+            movement = movement.toBuilder().id(new ObjectId().toHexString()).build();
+        }
+        var pending = new PendingMovement(movement, chessMovement, ply);
+        if (stopped) {
+            movementStore.appendAll(List.of(pending));
+            return;
+        }
+        try {
+            queue.put(new Queued(pending, null, sequence.incrementAndGet()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while queueing movement " + ply + " of lap " + movement.lapId(), e);
+        }
+        if (stopped) {
+            writeLeftovers();
+        }
+    }
+
+    /**
+     * Queue a lap for writing after the movements queued so far, waiting while the queue is full
+     */
+    public void saveLap(Lap lap) {
+        if (stopped) {
+            mongoTemplate.save(lap);
+            return;
+        }
+        try {
+            queue.put(new Queued(null, lap, sequence.incrementAndGet()));
+            queuedLaps.incrementAndGet();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while queueing an update of lap " + lap.lapId(), e);
+        }
+        if (stopped) {
+            writeLeftovers();
+        }
+    }
+
+    /**
+     * Queue a board snapshot for writing; a snapshot of the same lap and ply that is already stored is kept
+     */
+    public void saveSnapshot(BoardSnapshot snapshot) {
+        if (stopped) {
+            writeSnapshots(List.of(snapshot));
+            return;
+        }
+        snapshots.put(snapshot.lapId() + ":" + snapshot.ply(), snapshot);
+        if (stopped) {
+            writeLeftovers();
+        }
+    }
+
+    /**
+     * Write everything queued so far and wait for it within the configured flush timeout
+     *
+     * @return false if the writes are still pending when the timeout is over
+     */
+    public boolean flush() {
+        return flush(properties.getFlushTimeout());
+    }
+
+    /**
+     * Write everything queued so far and wait for it within the configured flush timeout
+     *
+     * @return false if the writes are still pending when the timeout is over or a write of the lap has been dropped
+     */
+    public boolean flush(String lapId) {
+        return flush() && !failedLaps.containsKey(lapId);
+    }
+
+    /**
+     * @return the failure of the first write of the lap that has been dropped
+     */
+    public Optional<RuntimeException> getFailure(String lapId) {
+        return Optional.ofNullable(failedLaps.get(lapId));
+    }
+
+    /**
+     * Forget the dropped writes of a lap once its game is over
+     */
+    public void clearFailure(String lapId) {
+        failedLaps.remove(lapId);
+    }
+
+    /**
+     * @see #flush()
+     */
+    public boolean flush(Duration timeout) {
+        if (stopped) {
+            return true;
+        }
+        long flushSequence = sequence.incrementAndGet();
+        long nanos = timeout.toNanos();
+        try {
+            if (!queue.offer(new Queued(null, null, flushSequence), nanos, TimeUnit.NANOSECONDS)) {
+                return false;
+            }
+            lock.lock();
+            try {
+                while (writtenSequence < flushSequence) {
+                    if (nanos <= 0) {
+                        return false;
+                    }
+                    nanos = written.awaitNanos(nanos);
+                }
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void run() {
+        List<Queued> batch = new ArrayList<>(properties.getBatchSize());
+        try {
+            while (!stopping || !queue.isEmpty() || !snapshots.isEmpty()) {
+                collect(batch);
+                if (!batch.isEmpty() || !snapshots.isEmpty()) {
+                    write(batch);
+                    batch.clear();
+                }
+            }
+        } catch (InterruptedException e) {
+            log.error("Write-behind interrupted, {} movements and lap updates and {} snapshots are not written",
+                    batch.size() + queue.size(), snapshots.size());
+        } finally {
+            stopped = true;
+            signalWritten(Long.MAX_VALUE);
+        }
+    }
+
+    /**
+     * Wait up to the flush interval for the batch to fill up; a flush request ends the wait
+     */
+    private void collect(List<Queued> batch) throws InterruptedException {
+        long deadline = System.nanoTime() + properties.getFlushInterval().toNanos();
+        while (batch.size() < properties.getBatchSize()) {
+            long remaining = deadline - System.nanoTime();
+            Queued next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+            if (next.isFlush()) {
+                return;
+            }
+        }
+    }
+
+    private void write(List<Queued> batch) throws InterruptedException {
+        List<PendingMovement> pending = batch.stream()
+                .map(Queued::movement)
+                .filter(Objects::nonNull)
+                .toList();
+        pending = skipFailedLaps(pending);
+        // written after the movements of the batch, so a lap never looks further on than its movements
+        Map<String, Lap> lapUpdates = lapUpdates(batch);
+
+        var failure = writeWithRetries(pending, lapUpdates.values());
+        if (failure != null) {
+            writeByLap(pending, lapUpdates, failure);
+        }
+        writeSnapshots(drainSnapshots());
+        if (!batch.isEmpty()) {
+            signalWritten(batch.getLast().sequence());
+        }
+    }
+
+    /**
+     * Write a batch lap by lap after it has failed as a whole
+     */
+    private void writeByLap(List<PendingMovement> pending, Map<String, Lap> lapUpdates, RuntimeException failure)
+            throws InterruptedException {
+        Map<String, List<PendingMovement>> movementsByLap = pending.stream()
+                .collect(Collectors.groupingBy(movement -> movement.movement().lapId(), LinkedHashMap::new, Collectors.toList()));
+        Set<String> lapIds = new LinkedHashSet<>(movementsByLap.keySet());
+        lapIds.addAll(lapUpdates.keySet());
+        if (lapIds.size() == 1 || isTransient(failure)) {
+            // the database is unavailable or the only lap of the batch cannot be written
+            lapIds.forEach(lapId -> drop(lapId, movementsByLap.getOrDefault(lapId, List.of()), lapUpdates.get(lapId), failure));
+            return;
+        }
+        log.warn("Writing {} laps of the failed batch one by one", lapIds.size());
+        for (String lapId : lapIds) {
+            List<PendingMovement> movements = movementsByLap.getOrDefault(lapId, List.of());
+            Lap lap = lapUpdates.get(lapId);
+            var lapFailure = writeWithRetries(movements, lap == null ? List.of() : List.of(lap));
+            if (lapFailure != null) {
+                drop(lapId, movements, lap, lapFailure);
+            }
+        }
+    }
+
+    /**
+     * @return the last failure or null if the write has been made
+     */
+    private RuntimeException writeWithRetries(List<PendingMovement> pending, Collection<Lap> lapUpdates)
+            throws InterruptedException {
+        long backoff = properties.getRetryBackoff().toMillis();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                write(pending, lapUpdates);
+                return null;
+            } catch (RuntimeException e) {
+                int maxAttempts = stopping ? Math.min(SHUTDOWN_ATTEMPTS, properties.getMaxAttempts()) : properties.getMaxAttempts();
+                if (!isTransient(e) || attempt >= maxAttempts) {
+                    log.warn("Failed to write {} movements and {} lap updates, attempt {}: {}",
+                            pending.size(), lapUpdates.size(), attempt, e.getMessage());
+                    return e;
+                }
+                log.warn("Failed to write {} movements and {} lap updates, attempt {}, retrying in {} ms: {}",
+                        pending.size(), lapUpdates.size(), attempt, backoff, e.getMessage());
+                Thread.sleep(backoff);
+                backoff = Math.min(backoff * 2, properties.getMaxRetryBackoff().toMillis());
+            }
+        }
+    }
+
+    /**
+     * Drop the movements of laps with an earlier dropped write, they would leave a gap in the lap
+     */
+    private List<PendingMovement> skipFailedLaps(List<PendingMovement> pending) {
+        if (failedLaps.isEmpty()) {
+            return pending;
+        }
+        Map<Boolean, List<PendingMovement>> byFailure = pending.stream()
+                .collect(Collectors.partitioningBy(movement -> failedLaps.containsKey(movement.movement().lapId())));
+        byFailure.get(true).stream()
+                .collect(Collectors.groupingBy(movement -> movement.movement().lapId()))
+                .forEach((lapId, movements) -> drop(lapId, movements, null, failedLaps.get(lapId)));
+        return byFailure.get(false);
+    }
+
+    private void drop(String lapId, List<PendingMovement> movements, Lap lap, RuntimeException failure) {
+        failedLaps.putIfAbsent(lapId, failure);
+        log.error("[lapId={}] Dropping movements {} and {} lap update: {}", lapId,
+                movements.stream().map(movement -> movement.ply() + ":" + movement.movement().notation()).toList(),
+                lap == null ? "no" : "the", failure.getMessage(), failure);
+        droppedMovements.increment(movements.size());
+        if (lap != null) {
+            droppedLaps.increment();
+        }
+    }
+
+    /**
+     * Insert the snapshots that are not stored yet; relies on the unique lap and ply index of the snapshots
+     */
+    private void writeSnapshots(Collection<BoardSnapshot> pending) {
+        if (pending.isEmpty()) {
+            return;
+        }
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, BoardSnapshot.class);
+        for (BoardSnapshot snapshot : pending) {
+            bulk.upsert(Query.query(Criteria.where("lapId").is(snapshot.lapId()).and("ply").is(snapshot.ply())),
+                    new Update()
+                            .setOnInsert("fen", snapshot.fen())
+                            .setOnInsert("createdAt", snapshot.createdAt()));
+        }
+        try {
+            bulk.execute();
+            log.debug("Written {} board snapshots", pending.size());
+        } catch (BulkOperationException e) {
+            // a concurrent upsert of the same snapshot has inserted it first
+            if (!e.getErrors().stream().allMatch(error -> error.getCode() == DUPLICATE_KEY)) {
+                log.warn("Dropping {} board snapshots: {}", pending.size(), e.getMessage());
+                droppedSnapshots.increment(pending.size());
+            }
+        } catch (RuntimeException e) {
+            log.warn("Dropping {} board snapshots: {}", pending.size(), e.getMessage());
+            droppedSnapshots.increment(pending.size());
+        }
+    }
+
+    /**
+     * Latest update of every lap in the batch
+     */
+    private Map<String, Lap> lapUpdates(List<Queued> batch) {
+        Map<String, Lap> lapUpdates = new LinkedHashMap<>();
+        for (Queued queued : batch) {
+            if (queued.lap() != null) {
+                queuedLaps.decrementAndGet();
+                lapUpdates.put(queued.lap().lapId(), queued.lap());
+            }
+        }
+        return lapUpdates;
+    }
+
+    private List<BoardSnapshot> drainSnapshots() {
+        List<BoardSnapshot> drained = new ArrayList<>();
+        for (String key : snapshots.keySet()) {
+            BoardSnapshot snapshot = snapshots.remove(key);
+            if (snapshot != null) {
+                drained.add(snapshot);
+            }
+        }
+        return drained;
+    }
+
+    /**
+     * Errors that may go away when the write is repeated, e.g. a lost connection or a primary election
+     */
+    private static boolean isTransient(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof TransientDataAccessException
+                    || cause instanceof RecoverableDataAccessException
+                    || cause instanceof DataAccessResourceFailureException
+                    || cause instanceof MongoSocketException
+                    || cause instanceof MongoTimeoutException
+                    || (cause instanceof MongoException mongoException
+                    && mongoException.hasErrorLabel(RETRYABLE_WRITE_ERROR_LABEL))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void write(List<PendingMovement> pending, Collection<Lap> lapUpdates) {
+        movementStore.appendAll(pending);
+        BulkOperations bulk = null;
+        for (Lap lap : lapUpdates) {
+            if (bulk == null) {
+                bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Lap.class);
+            }
+            bulk.replaceOne(Query.query(Criteria.where("lapId").is(lap.lapId())), lap,
+                    FindAndReplaceOptions.options().upsert());
+        }
+        if (bulk != null) {
+            bulk.execute();
+        }
+        log.debug("Written {} movements and {} lap updates", pending.size(), lapUpdates.size());
+    }
+
+    /**
+     * Write what was queued after the flusher has stopped
+     */
+    private synchronized void writeLeftovers() {
+        List<Queued> batch = new ArrayList<>();
+        queue.drainTo(batch);
+        write(batch.stream().map(Queued::movement).filter(Objects::nonNull).toList(), lapUpdates(batch).values());
+        writeSnapshots(drainSnapshots());
+    }
+
+    private void signalWritten(long sequence) {
+        lock.lock();
+        try {
+            writtenSequence = Math.max(writtenSequence, sequence);
+            written.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Write everything pending and stop; writes queued afterwards are made right away
+     */
+    @Override
+    public void destroy() throws InterruptedException {
+        log.info("Shutting down write-behind: {} movements and lap updates and {} snapshots pending",
+                queue.size(), snapshots.size());
+        stopping = true;
+        // wakes the flusher up if it is waiting for movements
+        queue.offer(new Queued(null, null, sequence.incrementAndGet()));
+        if (!flusher.join(properties.getFlushTimeout())) {
+            flusher.interrupt();
+            flusher.join();
+        }
+    }
+
+    /**
+     * A movement, a lap update or, with neither, a flush request
+     */
+    private record Queued(PendingMovement movement, Lap lap, long sequence) {
+
+        boolean isFlush() {
+            return movement == null && lap == null;
+        }
+    }
+}
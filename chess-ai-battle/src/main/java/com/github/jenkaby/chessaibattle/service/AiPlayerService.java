@@ -1,20 +1,27 @@
 package com.github.jenkaby.chessaibattle.service;
 
+import com.github.jenkaby.chessaibattle.chess.Board;
 import com.github.jenkaby.chessaibattle.chess.BoardService;
+import com.github.jenkaby.chessaibattle.chess.Fen;
+import com.github.jenkaby.chessaibattle.chess.SanFormatter;
+import com.github.jenkaby.chessaibattle.chess.movement.ChessMovement;
 import com.github.jenkaby.chessaibattle.model.AiChessMovement;
 import com.github.jenkaby.chessaibattle.model.Player;
 import com.github.jenkaby.chessaibattle.persistence.entity.Movement;
-import com.github.jenkaby.chessaibattle.persistence.repository.MovementRepository;
+import com.github.jenkaby.chessaibattle.persistence.store.WriteBehindWriter;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.client.ChatClient;
 
 import java.time.Instant;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
+import static com.github.jenkaby.chessaibattle.config.advisor.ChessRulesAdvisor.ATTEMPTS_KEY;
 import static com.github.jenkaby.chessaibattle.config.advisor.ChessRulesAdvisor.BOARD_KEY;
 import static com.github.jenkaby.chessaibattle.config.advisor.ChessRulesAdvisor.NEXT_MOVE_PLAYER_KEY;
+import static com.github.jenkaby.chessaibattle.config.advisor.RateLimitAdvisor.LAP_ID_KEY;
 
 @Slf4j
 @RequiredArgsConstructor
@@ -23,36 +30,74 @@ public class AiPlayerService implements PlayerService {
     private final ChatClient chatClient;
     @Getter
     private final Player player;
-    private final MovementRepository movementRepository;
+    private final WriteBehindWriter writeBehindWriter;
     private final BoardService boardService;
+    private final BoardSnapshotService boardSnapshotService;
+    // list the legal moves in the user message, see app.features.legal-moves-prompt
+    private final boolean includeLegalMoves;
 
     @Override
-    public AiChessMovement move(String lapId) {
-        var allMovements = movementRepository.findAllByLapIdOrderByMovedAt(lapId);
+    public AiChessMovement move(GameSession session) {
+        var lapId = session.getLapId();
+        var allMovements = session.getMovements();
         var movements = allMovements.stream()
                 .map(Movement::notation)
                 .collect(Collectors.joining(",", "[", "]"));
 
         log.info("[lapId={}] AI player {} is making turn", lapId, player.name());
+        var board = session.getBoard();
 
-        var newTurn = chatClient.prompt().user(movements)
+        var userMessage = includeLegalMoves
+                ? movements + System.lineSeparator() + "Legal moves: " + String.join(",", SanFormatter.legalMoves(board))
+                : movements;
+
+        var attempts = new AtomicInteger();
+        // a STOP or PAUSE of the lap interrupts the call
+        var newTurn = session.callCancellable(() -> chatClient.prompt().user(userMessage)
                 .advisors(a ->
-                        a.param("lapId", lapId)
+                        a.param(LAP_ID_KEY, lapId)
                                 .param(NEXT_MOVE_PLAYER_KEY, player)
-                                .param(BOARD_KEY, boardService.getCurrentBoard(allMovements)))
+                                .param(BOARD_KEY, board.copy())
+                                .param(ATTEMPTS_KEY, attempts))
                 .call()
-                .entity(AiChessMovement.class);
-        log.info("[lapId={}] AI player {} has made the turn: {}", lapId, player.name(), newTurn);
+                .entity(AiChessMovement.class));
+        log.info("[lapId={}] AI player {} has made the turn in {} attempt(s): {}",
+                lapId, player.name(), attempts.get(), newTurn);
+
+        if (newTurn.isDraw()) {
+            // a draw claim is not a move, the lap status records it
+            return newTurn;
+        }
 
-        var playerMovement = Movement.builder()
+        var movementBuilder = Movement.builder()
                 .lapId(lapId)
                 .player(player)
                 .notation(newTurn.notation())
                 .reason(newTurn.reason())
                 .movedAt(Instant.now())
-                .build();
+                .attempts(attempts.get() > 0 ? attempts.get() : null);
+        ChessMovement chessMovement;
+        // the store checks the movement against the legal moves of the position before it
+        Board before = board.copy();
+        try {
+            chessMovement = boardService.applyMovement(board, movementBuilder.build(), allMovements.size() + 1);
+            movementBuilder.fen(Fen.format(board));
+        } catch (IllegalArgumentException e) {
+            log.warn("[lapId={}] AI player {} has made an invalid move {}: {}",
+                    lapId, player.name(), newTurn.notation(), e.getMessage());
+            throw new IllegalPlayerMoveException(player, newTurn.notation(), e);
+        }
 
-        movementRepository.save(playerMovement);
+        var movement = movementBuilder.build();
+        try {
+            writeBehindWriter.appendMovement(movement, chessMovement, before, allMovements.size() + 1);
+        } catch (IllegalArgumentException e) {
+            log.warn("[lapId={}] AI player {} has made a move that cannot be stored {}: {}",
+                    lapId, player.name(), newTurn.notation(), e.getMessage());
+            throw new IllegalPlayerMoveException(player, newTurn.notation(), e);
+        }
+        boardSnapshotService.snapshotIfDue(lapId, allMovements.size() + 1, board);
+        session.append(movement, board);
         return newTurn;
     }
 }
@@ -1,28 +1,25 @@
 package com.github.jenkaby.chessaibattle.service;
 
+import com.github.jenkaby.chessaibattle.chess.GameTermination;
+import com.github.jenkaby.chessaibattle.chess.GameTerminationDetector;
 import com.github.jenkaby.chessaibattle.model.AiChessMovement;
 import com.github.jenkaby.chessaibattle.model.ChessMovementEvent;
 import com.github.jenkaby.chessaibattle.model.GameStatus;
 import com.github.jenkaby.chessaibattle.model.Player;
 import com.github.jenkaby.chessaibattle.persistence.entity.Lap;
-import com.github.jenkaby.chessaibattle.persistence.entity.Movement;
 import com.github.jenkaby.chessaibattle.persistence.entity.PlayerSettings;
 import com.github.jenkaby.chessaibattle.persistence.repository.LapRepository;
-import com.github.jenkaby.chessaibattle.persistence.repository.MovementRepository;
+import com.github.jenkaby.chessaibattle.persistence.store.WriteBehindWriter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.jspecify.annotations.NonNull;
 import org.springframework.ai.chat.prompt.PromptTemplate;
-import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.util.CollectionUtils;
-import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.Instant;
-import java.util.List;
-import java.util.Optional;
 
 @Slf4j
 @RequiredArgsConstructor
@@ -31,79 +28,238 @@ public class BaseGameService implements GameService {
 
     @Value("${app.max-turns}")
     private final Integer maxTurnsNumber;
-    @Qualifier("whitePlayerService")
-    private final PlayerService whitePlayer;
-
-    @Qualifier("blackPlayerService")
-    private final PlayerService blackPlayer;
+    private final PlayerServiceRegistry playerServices;
     private final LapRepository lapRepository;
-    private final MovementRepository movementRepository;
+    private final WriteBehindWriter writeBehindWriter;
     @Value("${app.white-player.model}")
     private final String whitePlayerModel;
     @Value("${app.black-player.model}")
     private final String blackPlayerModel;
     private final PromptTemplate promptTemplate;
+    private final GameSessionRegistry gameSessions;
+    private final LapControlChannel lapControlChannel;
+    private final LapEventHub lapEventHub;
+
+    @Override
+    public Lap updateGame(GameEventSink events, String lapId, GameStatus status) throws IOException {
+        return playGame(events, lapId, status);
+    }
 
     @Override
-    public Lap updateGame(SseEmitter emitter, String lapId, GameStatus status) throws IOException {
+    public Lap playGame(String lapId) {
+        var events = lapEventHub.claimProducer(lapId, false);
+        if (events.isEmpty()) {
+            log.warn("[lapId={}] Lap is already being played", lapId);
+            // read only: saving the lap would announce it on the LapControlChannel to the loop playing it
+            return gameSessions.find(lapId)
+                    .map(GameSession::getLap)
+                    .or(() -> lapRepository.findDistinctByLapId(lapId))
+                    .orElseThrow(() -> new IllegalStateException("Lap " + lapId + " is being played but is not stored yet"));
+        }
+        try {
+            return playGame(events.get(), lapId, GameStatus.START);
+        } catch (IOException e) {
+            // the sink of a headless game does not fail when nobody is watching
+            throw new UncheckedIOException(e);
+        } finally {
+            events.get().complete();
+        }
+    }
+
+    private Lap playGame(GameEventSink events, String lapId, GameStatus status) throws IOException {
 
         var lap = updateGame(lapId, status);
+        if (lap.status() != GameStatus.START) {
+            events.complete();
+            return lap;
+        }
+        var session = gameSessions.open(lap);
+        if (session.isEmpty()) {
+            log.warn("[lapId={}] Lap is already being played", lapId);
+            events.complete();
+            return lap;
+        }
+        try {
+            return playGame(events, session.get());
+        } finally {
+            // the movements must be stored before the lap can be loaded again
+            if (!writeBehindWriter.flush(lapId)) {
+                onWriteFailure(session.get());
+            }
+            gameSessions.close(session.get());
+            writeBehindWriter.clearFailure(lapId);
+        }
+    }
 
-        log.info("Loop started for lapId: {} with status: {}", lapId, lap.status());
+    private Lap playGame(GameEventSink events, GameSession session) throws IOException {
+        var lapId = session.getLapId();
+        log.info("Loop started for lapId: {} with status: {}", lapId, session.getStatus());
+        if (!session.isConsistent()) {
+            // there is no board to continue from, e.g. a lap stored with an illegal move by an older version
+            log.warn("[lapId={}] The stored movements cannot be replayed, stopping the lap", lapId);
+            events.send(new LapEvent(session.getCurrentTurn(), "end_game",
+                    "Game is stopped. The stored movements cannot be replayed."));
+            stop(session);
+            events.complete();
+            return session.getLap();
+        }
 
-        while (lap.status() == GameStatus.START) {
-            List<Movement> allMovements = movementRepository.findAllByLapIdOrderByMovedAt(lap.lapId());
-            var currentTurn = allMovements.size() + 1;
+        // STOP and PAUSE reach the session through the LapControlChannel
+        while (session.getStatus() == GameStatus.START) {
+            var currentTurn = session.getCurrentTurn();
+            var currentPlayerColor = session.getCurrentPlayer();
+            if (writeBehindWriter.getFailure(lapId).isPresent()) {
+                events.send(new LapEvent(currentTurn, "end_game",
+                        "Game is stopped. The movements of the lap could not be stored."));
+                onWriteFailure(session);
+                break;
+            }
+            var termination = detectTermination(session);
+            if (termination != null) {
+                // the player who made the last move
+                var winner = termination.isDraw() ? null : opponent(currentPlayerColor);
+                events.send(new LapEvent(currentTurn, "end_game",
+                        "Game is over by " + termination.name().toLowerCase().replace('_', ' ') + ". "
+                                + (winner == null ? "The game is a draw." : winner + " wins.")));
+                endGame(session, termination, winner);
+                break;
+            }
             if (currentTurn > maxTurnsNumber) {
-                emitter.send(
-                        SseEmitter.event()
-                                .id(String.valueOf(currentTurn))
-                                .name("end_game")
-                                .data("Game is over. The number of turns has reached the maximum limit of " + maxTurnsNumber + ". The game is a draw."));
-                makeDraw(lap);
+                events.send(new LapEvent(currentTurn, "end_game",
+                        "Game is over. The number of turns has reached the maximum limit of " + maxTurnsNumber + ". The game is a draw."));
+                makeDraw(session);
                 break;
             }
-            var currentPlayerColor = getCurrentPlayer(allMovements);
             log.info("{} player is making {} turn for lapId {}", currentPlayerColor, currentTurn, lapId);
-            var playerToMove = currentPlayerColor == Player.WHITE ? whitePlayer : blackPlayer;
-            var move = makeMove(lapId, playerToMove, emitter, currentTurn);
-
-            if (move.isMate()) {
-                lap = lap.toBuilder()
-                        .updatedAt(Instant.now())
-                        .status(GameStatus.STOP)
-                        .winner(currentPlayerColor)
-                        .build();
-                lapRepository.save(lap);
+            var playerToMove = playerServices.get(currentPlayerColor, getModel(session.getLap(), currentPlayerColor));
+            AiChessMovement move;
+            try {
+                move = makeMove(session, playerToMove, events, currentTurn);
+                if (move.isDraw()) {
+                    checkDrawClaim(session, currentPlayerColor, move);
+                }
+            } catch (IllegalPlayerMoveException e) {
+                var winner = opponent(e.getPlayer());
+                events.send(new LapEvent(currentTurn, "end_game",
+                        "Game is over. " + e.getPlayer() + " has made an illegal move " + e.getNotation() + ". "
+                                + winner + " wins."));
+                forfeit(session, winner);
+                break;
+            } catch (RuntimeException e) {
+                if (session.getStatus() == GameStatus.START) {
+                    throw e;
+                }
+                // the model call was cancelled by a STOP or PAUSE
+                log.info("[lapId={}] Turn {} is cancelled, the lap is {}", lapId, currentTurn, session.getStatus());
                 break;
             }
+
+            // mate, stalemate and rule draws are detected on the board before the next turn;
+            // a claimed draw has been checked against the board above
             if (move.isDraw()) {
-                lap = makeDraw(lap);
+                makeDraw(session);
                 break;
             }
-            lap = lapRepository.findDistinctByLapId(lapId).get();
         }
-        emitter.complete();
-        return lap;
+        events.complete();
+        return session.getLap();
+    }
+
+    private String getModel(Lap lap, Player player) {
+        var settings = player == Player.WHITE ? lap.whitePlayerSettings() : lap.blackPlayerSettings();
+        if (settings != null && settings.modelName() != null) {
+            return settings.modelName();
+        }
+        return player == Player.WHITE ? whitePlayerModel : blackPlayerModel;
     }
 
-    private @NonNull Lap makeDraw(Lap lap) {
-        lap = lap.toBuilder()
+    /**
+     * Termination of the game in the current position, checked after every applied move
+     */
+    private GameTermination detectTermination(GameSession session) {
+        if (session.getPlyCount() == 0) {
+            return null;
+        }
+        return GameTerminationDetector.detect(session.getBoard(), session.getPositionKeys());
+    }
+
+    /**
+     * A draw can only be claimed by threefold repetition or the fifty-move rule
+     *
+     * @throws IllegalPlayerMoveException if neither applies in the current position, the claim forfeits the game
+     */
+    private void checkDrawClaim(GameSession session, Player player, AiChessMovement move) {
+        var termination = detectTermination(session);
+        if (termination != GameTermination.THREEFOLD_REPETITION && termination != GameTermination.FIFTY_MOVE_RULE) {
+            throw new IllegalPlayerMoveException(player, move.notation(),
+                    new IllegalArgumentException("No draw can be claimed in this position"));
+        }
+    }
+
+    private void endGame(GameSession session, GameTermination termination, Player winner) {
+        log.info("[lapId={}] Game is over by {}, winner: {}", session.getLapId(), termination, winner);
+        var lap = session.getLap().toBuilder()
                 .updatedAt(Instant.now())
-                .status(GameStatus.DRAW)
+                .status(termination.isDraw() ? GameStatus.DRAW : GameStatus.CHECKMATE)
+                .winner(winner)
                 .build();
-        lapRepository.save(lap);
-        return lap;
+        writeBehindWriter.saveLap(lap);
+        session.setLap(lap);
+    }
+
+    private void forfeit(GameSession session, Player winner) {
+        log.info("[lapId={}] Game is forfeited, winner: {}", session.getLapId(), winner);
+        var lap = session.getLap().toBuilder()
+                .updatedAt(Instant.now())
+                .status(GameStatus.FORFEIT)
+                .winner(winner)
+                .build();
+        writeBehindWriter.saveLap(lap);
+        session.setLap(lap);
     }
 
-    private static @NonNull Player getCurrentPlayer(List<Movement> allMovements) {
-        if (CollectionUtils.isEmpty(allMovements)) {
-            return Player.WHITE;
+    /**
+     * The stored lap falls behind the session when writes are pending or dropped; a lap missing movements is stopped
+     */
+    private void onWriteFailure(GameSession session) {
+        var lapId = session.getLapId();
+        var failure = writeBehindWriter.getFailure(lapId);
+        if (failure.isEmpty()) {
+            log.warn("[lapId={}] Writes of the lap are still pending after the game loop ended", lapId);
+            return;
+        }
+        session.markInconsistent();
+        if (session.getStatus() == GameStatus.STOP) {
+            return;
+        }
+        // the final status must not claim a game whose movements are missing
+        log.error("[lapId={}] Movements of the lap could not be stored, stopping the lap: {}", lapId, failure.get().getMessage());
+        stop(session);
+        if (!writeBehindWriter.flush()) {
+            log.warn("[lapId={}] The stopped lap is still pending after the game loop ended", lapId);
         }
-        return Optional.ofNullable(allMovements.getLast())
-                .map(Movement::player)
-                .map(player -> player == Player.WHITE ? Player.BLACK : Player.WHITE)
-                .orElse(Player.WHITE);
+    }
+
+    private void stop(GameSession session) {
+        var lap = session.getLap().toBuilder()
+                .updatedAt(Instant.now())
+                .status(GameStatus.STOP)
+                .build();
+        writeBehindWriter.saveLap(lap);
+        session.setLap(lap);
+    }
+
+    private void makeDraw(GameSession session) {
+        var lap = session.getLap().toBuilder()
+                .updatedAt(Instant.now())
+                .status(GameStatus.DRAW)
+                .build();
+        writeBehindWriter.saveLap(lap);
+        session.setLap(lap);
+    }
+
+    private static @NonNull Player opponent(Player player) {
+        return player == Player.WHITE ? Player.BLACK : Player.WHITE;
     }
 
     @Override
@@ -126,23 +282,22 @@ public class BaseGameService implements GameService {
                     .updatedAt(now)
                     .build();
         }
-        return lapRepository.save(lap);
+        lap = lapRepository.save(lap);
+        lapControlChannel.send(lap);
+        return lap;
     }
 
-    private AiChessMovement makeMove(String lapId, PlayerService player, SseEmitter emitter, Integer id) throws IOException {
-        var movement = player.move(lapId);
+    private AiChessMovement makeMove(GameSession session, PlayerService player, GameEventSink events, Integer id) throws IOException {
+        var lapId = session.getLapId();
+        var movement = player.move(session);
         try {
-            SseEmitter.SseEventBuilder event = SseEmitter.event()
-                    .id(String.valueOf(id))
-                    .data(ChessMovementEvent.builder()
-                            .turn(id)
-                            .lapId(lapId)
-                            .movement(movement.notation())
-                            .player(player.getPlayer())
-                            .reason(movement.reason())
-                            .build())
-                    .name("move");
-            emitter.send(event);
+            events.send(new LapEvent(id, "move", ChessMovementEvent.builder()
+                    .turn(id)
+                    .lapId(lapId)
+                    .movement(movement.notation())
+                    .player(player.getPlayer())
+                    .reason(movement.reason())
+                    .build()));
             log.debug("Sent SSE for lapId {}: player={}, movement={}", lapId, player.getPlayer(), movement.notation());
         } catch (IOException e) {
             log.error("Failed to send SSE for lapId {}: {}", lapId, e.getMessage());
@@ -0,0 +1,71 @@
+package com.github.jenkaby.chessaibattle.service;
+
+import com.github.jenkaby.chessaibattle.chess.Board;
+import com.github.jenkaby.chessaibattle.chess.BoardService;
+import com.github.jenkaby.chessaibattle.chess.Fen;
+import com.github.jenkaby.chessaibattle.persistence.entity.BoardSnapshot;
+import com.github.jenkaby.chessaibattle.persistence.entity.Movement;
+import com.github.jenkaby.chessaibattle.persistence.repository.BoardSnapshotRepository;
+import com.github.jenkaby.chessaibattle.persistence.store.MovementStore;
+import com.github.jenkaby.chessaibattle.persistence.store.WriteBehindWriter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Writes periodic board snapshots of laps and restores historical positions from the nearest one,
+ * so only the movements after the snapshot are loaded and replayed.
+ */
+@Slf4j
+@RequiredArgsConstructor
+@Service
+public class BoardSnapshotService {
+
+    private final BoardSnapshotRepository boardSnapshotRepository;
+    private final MovementStore movementStore;
+    private final WriteBehindWriter writeBehindWriter;
+    private final BoardService boardService;
+    @Value("${app.board-snapshots.interval:20}")
+    private final int snapshotInterval;
+
+    /**
+     * Queue a snapshot for writing when the ply is a multiple of the configured interval
+     *
+     * @param ply   number of movements played in the lap
+     * @param board board after these movements
+     */
+    public void snapshotIfDue(String lapId, int ply, Board board) {
+        if (snapshotInterval <= 0 || ply % snapshotInterval != 0) {
+            return;
+        }
+        writeBehindWriter.saveSnapshot(BoardSnapshot.builder()
+                .lapId(lapId)
+                .ply(ply)
+                .fen(Fen.format(board))
+                .createdAt(Instant.now())
+                .build());
+        log.debug("[lapId={}] Queued board snapshot at ply {}", lapId, ply);
+    }
+
+    /**
+     * Get the board of the lap after the given number of plies.
+     * Starts from the nearest snapshot at or before the ply and replays only the movements after it;
+     * a ply beyond the end of the lap gives the latest board.
+     */
+    public Board getBoardAt(String lapId, int ply) {
+        int targetPly = Math.max(ply, 0);
+        Optional<BoardSnapshot> snapshot = boardSnapshotRepository.findFirstByLapIdAndPlyLessThanEqualOrderByPlyDesc(lapId, targetPly);
+        int fromPly = snapshot.map(BoardSnapshot::ply).orElse(0);
+
+        List<Movement> tail = movementStore.findRange(lapId, fromPly, targetPly - fromPly);
+        log.debug("[lapId={}] Restoring ply {} from snapshot at ply {}, replaying {} movements",
+                lapId, targetPly, fromPly, tail.size());
+        Board start = snapshot.map(s -> Fen.parse(s.fen())).orElse(null);
+        return boardService.getCurrentBoardFrom(start, tail);
+    }
+}
@@ -0,0 +1,27 @@
+package com.github.jenkaby.chessaibattle.service;
+
+import java.io.IOException;
+
+/**
+ * Destination of the events of a game being played: the spectators of the lap, see {@link LapEventHub},
+ * or {@link #NONE}
+ */
+public interface GameEventSink {
+
+    GameEventSink NONE = new GameEventSink() {
+        @Override
+        public void send(LapEvent event) {
+        }
+
+        @Override
+        public void complete() {
+        }
+    };
+
+    /**
+     * @throws IOException if the game should not go on, e.g. nobody is watching it anymore
+     */
+    void send(LapEvent event) throws IOException;
+
+    void complete();
+}
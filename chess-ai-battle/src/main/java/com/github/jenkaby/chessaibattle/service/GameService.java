@@ -2,13 +2,21 @@ package com.github.jenkaby.chessaibattle.service;
 
 import com.github.jenkaby.chessaibattle.model.GameStatus;
 import com.github.jenkaby.chessaibattle.persistence.entity.Lap;
-import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.io.IOException;
 
 public interface GameService {
 
-    Lap updateGame(SseEmitter emitter, String lapId, GameStatus status) throws IOException;
+    /**
+     * Play the lap, sending its events to the sink, until it is over, stopped or nobody is watching it anymore
+     */
+    Lap updateGame(GameEventSink events, String lapId, GameStatus status) throws IOException;
 
     Lap updateGame(String lapId, GameStatus status);
+
+    /**
+     * Play the lap to the end without a client attached, e.g. as part of a tournament; spectators may still watch it.
+     * A lap that is already being played is not touched, its stored state is returned with status START.
+     */
+    Lap playGame(String lapId);
 }
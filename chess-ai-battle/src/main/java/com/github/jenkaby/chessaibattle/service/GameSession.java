@@ -0,0 +1,200 @@
+package com.github.jenkaby.chessaibattle.service;
+
+import com.github.jenkaby.chessaibattle.chess.Board;
+import com.github.jenkaby.chessaibattle.model.GameStatus;
+import com.github.jenkaby.chessaibattle.model.Player;
+import com.github.jenkaby.chessaibattle.persistence.entity.Lap;
+import com.github.jenkaby.chessaibattle.persistence.entity.Movement;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.function.Supplier;
+
+/**
+ * State of a lap while it is being played: the lap, its movements, the current board and the position keys.
+ * The session is loaded once when the game loop starts and kept up to date by the loop, so a turn does not
+ * read the lap or its movements back from the database; Mongo only receives the writes.
+ * <p>
+ * The status may be changed from other threads, e.g. when the game is stopped, which also cancels a
+ * model call in progress; everything else is changed by the game loop only. Readers always get copies.
+ */
+public class GameSession {
+
+    private final String lapId;
+    private volatile Lap lap;
+    // guards the lap status against the thread waiting in a cancellable call
+    private final Object control = new Object();
+    private Thread waitingThread;
+    private boolean waitCancelled;
+    private final List<Movement> movements;
+    private Board board;
+    private long[] positionKeys;
+    // number of stored movements that could not be replayed or stored, the session has no usable board; -1 if it has one
+    private int invalidPly;
+
+    /**
+     * @param movements    all movements of the lap ordered by time
+     * @param board        board after the movements, owned by the session from now on;
+     *                     null if the movements cannot be replayed
+     * @param positionKeys Zobrist keys of the positions after 0..movements.size() movements
+     */
+    GameSession(Lap lap, List<Movement> movements, Board board, long[] positionKeys) {
+        this.lapId = lap.lapId();
+        this.lap = lap;
+        this.movements = new ArrayList<>(movements);
+        this.board = board;
+        this.positionKeys = positionKeys;
+        this.invalidPly = board == null ? movements.size() : -1;
+    }
+
+    public String getLapId() {
+        return lapId;
+    }
+
+    public Lap getLap() {
+        return lap;
+    }
+
+    public GameStatus getStatus() {
+        return lap.status();
+    }
+
+    void setLap(Lap lap) {
+        synchronized (control) {
+            this.lap = lap;
+        }
+    }
+
+    /**
+     * Change the status of a game being played and interrupt the thread waiting in {@link #callCancellable}
+     *
+     * @return false if the game is no longer played
+     */
+    boolean changeStatus(GameStatus status) {
+        synchronized (control) {
+            if (lap.status() != GameStatus.START) {
+                return false;
+            }
+            lap = lap.toBuilder()
+                    .status(status)
+                    .updatedAt(Instant.now())
+                    .build();
+            if (status != GameStatus.START && waitingThread != null) {
+                waitCancelled = true;
+                waitingThread.interrupt();
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Make a call that may wait long, e.g. for a model; the waiting thread is interrupted when the game is
+     * stopped or paused meanwhile, so the call ends with an exception
+     *
+     * @throws CancellationException if the game is no longer played
+     */
+    public <T> T callCancellable(Supplier<T> call) {
+        synchronized (control) {
+            if (lap.status() != GameStatus.START) {
+                throw new CancellationException("Lap " + lapId + " is " + lap.status());
+            }
+            waitingThread = Thread.currentThread();
+        }
+        try {
+            return call.get();
+        } finally {
+            synchronized (control) {
+                waitingThread = null;
+                // only the interrupt of the cancellation is cleared, not one of a shutdown
+                if (waitCancelled) {
+                    waitCancelled = false;
+                    Thread.interrupted();
+                }
+            }
+        }
+    }
+
+    /**
+     * Movements played so far, oldest first
+     */
+    public synchronized List<Movement> getMovements() {
+        return Collections.unmodifiableList(new ArrayList<>(movements));
+    }
+
+    public synchronized int getPlyCount() {
+        return movements.size();
+    }
+
+    public synchronized int getCurrentTurn() {
+        return movements.size() + 1;
+    }
+
+    public synchronized Player getCurrentPlayer() {
+        if (movements.isEmpty()) {
+            return Player.WHITE;
+        }
+        return movements.getLast().player() == Player.WHITE ? Player.BLACK : Player.WHITE;
+    }
+
+    /**
+     * @return a copy of the current board that the caller is free to modify
+     * @throws IllegalArgumentException if the stored movements of the lap could not be replayed
+     */
+    public synchronized Board getBoard() {
+        checkConsistent();
+        return board.copy();
+    }
+
+    /**
+     * @return Zobrist keys of the positions from the initial one up to the current one
+     * @throws IllegalArgumentException if the stored movements of the lap could not be replayed
+     */
+    public synchronized long[] getPositionKeys() {
+        checkConsistent();
+        return Arrays.copyOf(positionKeys, movements.size() + 1);
+    }
+
+    /**
+     * Record a played movement; illegal moves are never recorded, see {@link IllegalPlayerMoveException}
+     *
+     * @param boardAfter board after the movement, owned by the session from now on
+     */
+    synchronized void append(Movement movement, Board boardAfter) {
+        checkConsistent();
+        Objects.requireNonNull(boardAfter, "boardAfter");
+        movements.add(movement);
+        board = boardAfter;
+        if (positionKeys.length <= movements.size()) {
+            positionKeys = Arrays.copyOf(positionKeys, Math.max(positionKeys.length * 2, movements.size() + 1));
+        }
+        positionKeys[movements.size()] = board.getZobristKey();
+    }
+
+    /**
+     * @return false if the stored movements of the lap could not be replayed; such a lap cannot be played on
+     */
+    synchronized boolean isConsistent() {
+        return invalidPly < 0;
+    }
+
+    /**
+     * Mark the movements of the session as not matching the stored ones, e.g. after a write has been dropped;
+     * the board is then not cached and the lap cannot be played on
+     */
+    synchronized void markInconsistent() {
+        if (invalidPly < 0) {
+            invalidPly = movements.size();
+        }
+    }
+
+    private void checkConsistent() {
+        if (invalidPly >= 0) {
+            throw new IllegalArgumentException("The " + invalidPly + " stored movements of lap " + lapId + " cannot be replayed");
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.github.jenkaby.chessaibattle.service;
+
+import com.github.jenkaby.chessaibattle.model.GameStatus;
+import com.github.jenkaby.chessaibattle.persistence.entity.Lap;
+import com.github.jenkaby.chessaibattle.persistence.store.MovementStore;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sessions of the laps being played on this node, one per lap.
+ * A session is opened when the game loop starts and closed when it ends; its board then goes back to the
+ * {@link LapBoardCache} so that readers and a resumed game do not replay the movements.
+ */
+@Slf4j
+@RequiredArgsConstructor
+@Component
+public class GameSessionRegistry {
+
+    private final MovementStore movementStore;
+    private final LapBoardCache lapBoardCache;
+    private final Map<String, GameSession> sessions = new ConcurrentHashMap<>();
+
+    /**
+     * Load the movements and the board of the lap once and open its session
+     *
+     * @return empty if the lap is already being played on this node
+     */
+    public Optional<GameSession> open(Lap lap) {
+        var lapId = lap.lapId();
+        if (sessions.containsKey(lapId)) {
+            return Optional.empty();
+        }
+        var movements = movementStore.findAllByLapId(lapId);
+        GameSession session;
+        try {
+            session = new GameSession(lap, movements, lapBoardCache.getBoard(lapId, movements),
+                    lapBoardCache.getPositionKeys(lapId, movements));
+        } catch (IllegalArgumentException e) {
+            log.warn("[lapId={}] Cannot replay the movements of the lap: {}", lapId, e.getMessage());
+            session = new GameSession(lap, movements, null, null);
+        }
+        if (sessions.putIfAbsent(lapId, session) != null) {
+            return Optional.empty();
+        }
+        log.debug("[lapId={}] Game session opened at ply {}", lapId, movements.size());
+        return Optional.of(session);
+    }
+
+    public Optional<GameSession> find(String lapId) {
+        return Optional.ofNullable(sessions.get(lapId));
+    }
+
+    /**
+     * Pass a STOP or PAUSE to the open session of the lap, cancelling the model call in progress
+     *
+     * @return false if the lap is not being played on this node
+     */
+    public boolean applyStatus(String lapId, GameStatus status) {
+        if (status != GameStatus.STOP && status != GameStatus.PAUSE) {
+            return false;
+        }
+        var session = sessions.get(lapId);
+        if (session == null || !session.changeStatus(status)) {
+            return false;
+        }
+        log.info("[lapId={}] Game session is changed to {}", lapId, status);
+        return true;
+    }
+
+    public void close(GameSession session) {
+        if (!sessions.remove(session.getLapId(), session)) {
+            return;
+        }
+        if (session.isConsistent()) {
+            lapBoardCache.put(session.getLapId(), session.getBoard(), session.getPlyCount(), session.getPositionKeys());
+        } else {
+            lapBoardCache.evict(session.getLapId());
+        }
+        log.debug("[lapId={}] Game session closed at ply {}", session.getLapId(), session.getPlyCount());
+    }
+}
@@ -0,0 +1,20 @@
+package com.github.jenkaby.chessaibattle.service;
+
+import com.github.jenkaby.chessaibattle.model.Player;
+import lombok.Getter;
+
+/**
+ * A player has made a move that cannot be applied to the board; the move is not stored and the player forfeits
+ */
+@Getter
+public class IllegalPlayerMoveException extends RuntimeException {
+
+    private final Player player;
+    private final String notation;
+
+    public IllegalPlayerMoveException(Player player, String notation, Throwable cause) {
+        super(player + " has made an illegal move " + notation, cause);
+        this.player = player;
+        this.notation = notation;
+    }
+}
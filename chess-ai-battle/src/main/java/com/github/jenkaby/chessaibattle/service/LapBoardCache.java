@@ -0,0 +1,163 @@
+package com.github.jenkaby.chessaibattle.service;
+
+import com.github.jenkaby.chessaibattle.chess.Board;
+import com.github.jenkaby.chessaibattle.chess.BoardService;
+import com.github.jenkaby.chessaibattle.persistence.entity.Movement;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bounded LRU cache of the latest board per lap.
+ * The board is put back after every saved movement, so a turn does not replay the whole game.
+ * Callers always get a copy; the cached board itself is never exposed.
+ * Zobrist keys of the positions along the game are kept next to the board for repetition detection.
+ * Only the map is locked: replays run outside the lock, so a lap being rebuilt does not hold up the others,
+ * and a board is never replaced by one that is behind it.
+ */
+@Slf4j
+@Component
+public class LapBoardCache {
+
+    private final BoardService boardService;
+    private final Map<String, CachedBoard> boards;
+
+    public LapBoardCache(BoardService boardService, @Value("${app.board-cache.max-laps:256}") int maxLaps) {
+        this.boardService = boardService;
+        this.boards = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedBoard> eldest) {
+                return size() > maxLaps;
+            }
+        };
+    }
+
+    /**
+     * Get the board after all the given movements of the lap.
+     * Only movements after the cached ply are applied; a full rebuild happens on a cache miss.
+     *
+     * @param movements all movements of the lap ordered by time
+     * @return a copy of the board that the caller is free to modify
+     */
+    public Board getBoard(String lapId, List<Movement> movements) {
+        return load(lapId, movements, false).board().copy();
+    }
+
+    /**
+     * Get the Zobrist keys of the lap positions from the initial one up to the position after all the given
+     * movements. The whole game is replayed once if the keys are not known yet, e.g. after a restart.
+     *
+     * @param movements all movements of the lap ordered by time
+     * @return plyCount + 1 keys, oldest first
+     */
+    public long[] getPositionKeys(String lapId, List<Movement> movements) {
+        CachedBoard cached = get(lapId);
+        if (cached != null && cached.positionKeys() != null && cached.plyCount() >= movements.size()) {
+            // the keys of a board further ahead start with the requested ones
+            return Arrays.copyOf(cached.positionKeys(), movements.size() + 1);
+        }
+        return load(lapId, movements, true).positionKeys().clone();
+    }
+
+    /**
+     * Bring the board of the lap up to the given movements. The replay runs outside the lock on a copy of the
+     * cached board; the result is cached unless the cache has a board further ahead by then.
+     *
+     * @param withKeys whether the position keys must be known
+     */
+    private CachedBoard load(String lapId, List<Movement> movements, boolean withKeys) {
+        int plyCount = movements.size();
+        CachedBoard cached = get(lapId);
+        boolean keysKnown = cached != null && cached.positionKeys() != null;
+        if (cached != null && cached.plyCount() == plyCount && (keysKnown || !withKeys)) {
+            return cached;
+        }
+
+        CachedBoard loaded;
+        if (cached != null && cached.plyCount() < plyCount && (keysKnown || !withKeys)) {
+            log.debug("[lapId={}] Advancing cached board from ply {} to {}", lapId, cached.plyCount(), plyCount);
+            Board board = cached.board().copy();
+            long[] positionKeys = keysKnown ? Arrays.copyOf(cached.positionKeys(), plyCount + 1) : null;
+            for (int ply = cached.plyCount(); ply < plyCount; ply++) {
+                boardService.applyMovement(board, movements.get(ply), ply + 1);
+                if (positionKeys != null) {
+                    positionKeys[ply + 1] = board.getZobristKey();
+                }
+            }
+            loaded = new CachedBoard(board, plyCount, positionKeys);
+        } else if (withKeys) {
+            log.debug("[lapId={}] Replaying {} movements for position keys", lapId, plyCount);
+            Board board = new Board();
+            long[] positionKeys = new long[plyCount + 1];
+            positionKeys[0] = board.getZobristKey();
+            for (int ply = 0; ply < plyCount; ply++) {
+                boardService.applyMovement(board, movements.get(ply), ply + 1);
+                positionKeys[ply + 1] = board.getZobristKey();
+            }
+            loaded = new CachedBoard(board, plyCount, positionKeys);
+        } else {
+            log.debug("[lapId={}] Board cache miss, replaying {} movements", lapId, plyCount);
+            loaded = new CachedBoard(boardService.getCurrentBoard(movements), plyCount, null);
+        }
+
+        synchronized (boards) {
+            CachedBoard current = boards.get(lapId);
+            if (current == null || current.plyCount() < plyCount
+                    || (current.plyCount() == plyCount && current.positionKeys() == null)) {
+                boards.put(lapId, loaded);
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Cache the board of the lap after the given number of movements, e.g. right after a movement has been saved.
+     * The cache takes ownership of the board, the caller must not modify it afterwards.
+     */
+    public void put(String lapId, Board board, int plyCount) {
+        synchronized (boards) {
+            CachedBoard previous = boards.get(lapId);
+            long[] positionKeys = null;
+            if (previous != null && previous.positionKeys() != null && previous.plyCount() == plyCount - 1) {
+                positionKeys = Arrays.copyOf(previous.positionKeys(), plyCount + 1);
+                positionKeys[plyCount] = board.getZobristKey();
+            }
+            boards.put(lapId, new CachedBoard(board, plyCount, positionKeys));
+        }
+    }
+
+    /**
+     * Cache the board of the lap together with the keys of the positions after 0..plyCount movements,
+     * e.g. when a game session is closed. The cache takes ownership of the board and the keys.
+     */
+    public void put(String lapId, Board board, int plyCount, long[] positionKeys) {
+        synchronized (boards) {
+            boards.put(lapId, new CachedBoard(board, plyCount, positionKeys));
+        }
+    }
+
+    public void evict(String lapId) {
+        synchronized (boards) {
+            boards.remove(lapId);
+        }
+    }
+
+    private CachedBoard get(String lapId) {
+        synchronized (boards) {
+            return boards.get(lapId);
+        }
+    }
+
+    /**
+     * The board is never modified once cached, it is only copied.
+     *
+     * @param positionKeys keys of the positions after 0..plyCount movements, null if not known
+     */
+    private record CachedBoard(Board board, int plyCount, long[] positionKeys) {
+    }
+}
@@ -0,0 +1,135 @@
+package com.github.jenkaby.chessaibattle.service;
+
+import com.github.jenkaby.chessaibattle.model.GameStatus;
+import com.github.jenkaby.chessaibattle.persistence.entity.Lap;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Delivers STOP and PAUSE of laps to their game loops without the loops polling the laps collection.
+ * <p>
+ * A change made on this node goes to the loop right away. With {@code app.lap-control.change-stream.enabled}
+ * every node also watches the laps collection, so a loop running on another instance gets the change as soon
+ * as it is stored; change streams require MongoDB to run as a replica set. Either way the model call the loop
+ * is waiting for is cancelled.
+ */
+@Slf4j
+@Component
+public class LapControlChannel implements DisposableBean {
+
+    private static final List<String> CONTROL_STATUSES = List.of(GameStatus.STOP.name(), GameStatus.PAUSE.name());
+    private static final long MAX_RECONNECT_BACKOFF_MILLIS = 30_000;
+
+    private final GameSessionRegistry gameSessions;
+    private final MongoTemplate mongoTemplate;
+    private final Thread watcher;
+    private volatile boolean stopping;
+
+    public LapControlChannel(GameSessionRegistry gameSessions, MongoTemplate mongoTemplate,
+                             @Value("${app.lap-control.change-stream.enabled:false}") boolean changeStreamEnabled) {
+        this.gameSessions = gameSessions;
+        this.mongoTemplate = mongoTemplate;
+        this.watcher = changeStreamEnabled
+                ? Thread.ofVirtual().name("lap-control").start(this::watch)
+                : null;
+    }
+
+    /**
+     * Deliver the stored status of the lap to its game loop on this node; other nodes get it from the change stream
+     */
+    public void send(Lap lap) {
+        deliver(lap.lapId(), lap.status());
+    }
+
+    private void deliver(String lapId, GameStatus status) {
+        if (gameSessions.applyStatus(lapId, status)) {
+            log.debug("[lapId={}] Status {} delivered to the game loop", lapId, status);
+        }
+    }
+
+    private void watch() {
+        BsonDocument resumeToken = null;
+        long backoff = 1000;
+        while (!stopping) {
+            var changeStream = mongoTemplate.getCollection(mongoTemplate.getCollectionName(Lap.class))
+                    .watch(List.of(Aggregates.match(Filters.or(
+                            Filters.in("updateDescription.updatedFields.status", CONTROL_STATUSES),
+                            Filters.in("fullDocument.status", CONTROL_STATUSES)))))
+                    .fullDocument(FullDocument.UPDATE_LOOKUP)
+                    // bounds the wait for changes, so that the watcher notices a shutdown
+                    .maxAwaitTime(1, TimeUnit.SECONDS);
+            boolean resumed = resumeToken != null;
+            if (resumed) {
+                // changes stored while the stream was down are not missed
+                changeStream = changeStream.resumeAfter(resumeToken);
+            }
+            try (MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor = changeStream.cursor()) {
+                log.info("Watching the laps collection for status changes");
+                backoff = 1000;
+                while (!stopping) {
+                    ChangeStreamDocument<Document> change = cursor.tryNext();
+                    if (change != null) {
+                        resumeToken = change.getResumeToken();
+                        resumed = false;
+                        onChange(change);
+                    }
+                }
+            } catch (RuntimeException e) {
+                if (stopping) {
+                    return;
+                }
+                if (resumed) {
+                    // the token may be gone from the oplog, the stream is not resumed twice in a row
+                    resumeToken = null;
+                }
+                log.warn("Lap change stream failed, reconnecting in {} ms: {}", backoff, e.getMessage());
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException ie) {
+                    return;
+                }
+                backoff = Math.min(backoff * 2, MAX_RECONNECT_BACKOFF_MILLIS);
+            }
+        }
+    }
+
+    private void onChange(ChangeStreamDocument<Document> change) {
+        Document lap = change.getFullDocument();
+        if (lap == null || lap.getString("lapId") == null) {
+            return;
+        }
+        String status = lap.getString("status");
+        if (change.getUpdateDescription() != null && change.getUpdateDescription().getUpdatedFields() != null) {
+            BsonValue updated = change.getUpdateDescription().getUpdatedFields().get("status");
+            if (updated != null && updated.isString()) {
+                status = updated.asString().getValue();
+            }
+        }
+        if (status != null && CONTROL_STATUSES.contains(status)) {
+            deliver(lap.getString("lapId"), GameStatus.valueOf(status));
+        }
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        stopping = true;
+        if (watcher != null) {
+            watcher.interrupt();
+            watcher.join(TimeUnit.SECONDS.toMillis(5));
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.github.jenkaby.chessaibattle.service;
+
+/**
+ * Event of a lap being played, sent to its spectators as SSE
+ *
+ * @param id   turn the event belongs to, also the SSE event id a spectator resumes from
+ * @param name SSE event name, e.g. "move" or "end_game"
+ * @param data payload, e.g. a {@link com.github.jenkaby.chessaibattle.model.ChessMovementEvent}
+ */
+public record LapEvent(long id, String name, Object data) {
+}
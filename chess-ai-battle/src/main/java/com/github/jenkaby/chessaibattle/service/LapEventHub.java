@@ -0,0 +1,304 @@
+package com.github.jenkaby.chessaibattle.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Broadcasts the events of the laps being played to any number of spectators.
+ * <p>
+ * A lap has one producer, the game loop, and one broadcast while it is played. The broadcast keeps the most
+ * recent events, so a spectator that reconnects with {@code Last-Event-ID} gets what it has missed.
+ * Every spectator has a bounded queue drained by its own virtual thread; the game loop only puts events into
+ * the queues and never waits for a client. A spectator whose queue is full is disconnected and resumes
+ * from the recent events when it reconnects.
+ */
+@Slf4j
+@Component
+public class LapEventHub {
+
+    private static final LapEvent END = new LapEvent(-1, "end", null);
+
+    private final int bufferSize;
+    private final int subscriberQueueCapacity;
+    private final Map<String, LapBroadcast> broadcasts = new ConcurrentHashMap<>();
+    private final AtomicInteger spectators = new AtomicInteger();
+
+    public LapEventHub(@Value("${app.lap-events.buffer-size:64}") int bufferSize,
+                       @Value("${app.lap-events.subscriber-queue-capacity:32}") int subscriberQueueCapacity,
+                       MeterRegistry meterRegistry) {
+        this.bufferSize = bufferSize;
+        this.subscriberQueueCapacity = subscriberQueueCapacity;
+        Gauge.builder("chess.laps.spectators", spectators, AtomicInteger::get)
+                .description("Clients watching laps being played")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Send the events of the lap to the emitter until the lap stops being played or the client goes away.
+     * The first spectator of a lap that is not being played becomes its producer in the same step, so the game
+     * loop it starts always has a spectator to begin with; its sink fails once the last spectator has gone.
+     *
+     * @param lastEventId id of the last event the client has received, null for a new client
+     * @return the sink of the game loop to start, empty if the lap already has a producer on this node
+     */
+    public Optional<GameEventSink> watch(String lapId, SseEmitter emitter, String lastEventId) {
+        var subscriber = new Subscriber(lapId, emitter);
+        var eventId = parseEventId(lastEventId);
+        while (true) {
+            var broadcast = broadcast(lapId);
+            var claim = broadcast.watch(subscriber, eventId);
+            if (claim == Claim.CLAIMED) {
+                return Optional.of(broadcast);
+            }
+            if (claim == Claim.TAKEN) {
+                return Optional.empty();
+            }
+            // a broadcast completed in between is replaced by a new one for the next producer
+        }
+    }
+
+    /**
+     * Become the producer of the lap events
+     *
+     * @param endWhenUnwatched the sink fails once the last spectator has gone, so the game is not played for nobody
+     * @return empty if the lap already has a producer on this node
+     */
+    public Optional<GameEventSink> claimProducer(String lapId, boolean endWhenUnwatched) {
+        while (true) {
+            var broadcast = broadcast(lapId);
+            var claim = broadcast.claimProducer(endWhenUnwatched);
+            if (claim == Claim.CLAIMED) {
+                return Optional.of(broadcast);
+            }
+            if (claim == Claim.TAKEN) {
+                return Optional.empty();
+            }
+            // completed in between, the next broadcast is claimed
+        }
+    }
+
+    /**
+     * Run the listener once the producer of the lap has completed its events, i.e. its game loop has ended
+     *
+     * @return false if the lap has no producer on this node, the listener is then not run
+     */
+    public boolean whenCompleted(String lapId, Runnable listener) {
+        var broadcast = broadcasts.get(lapId);
+        return broadcast != null && broadcast.addCompletionListener(listener);
+    }
+
+    private LapBroadcast broadcast(String lapId) {
+        return broadcasts.computeIfAbsent(lapId, LapBroadcast::new);
+    }
+
+    private static Long parseEventId(String eventId) {
+        if (eventId == null || eventId.isBlank()) {
+            return null;
+        }
+        try {
+            return Long.parseLong(eventId.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private enum Claim {
+        CLAIMED, TAKEN, COMPLETED
+    }
+
+    /**
+     * Events of one lap while it is played
+     */
+    private final class LapBroadcast implements GameEventSink {
+
+        private final String lapId;
+        private final Deque<LapEvent> recentEvents = new ArrayDeque<>();
+        private final List<Subscriber> subscribers = new ArrayList<>();
+        private final List<Runnable> completionListeners = new ArrayList<>();
+        private boolean producing;
+        private boolean endWhenUnwatched;
+        private boolean completed;
+
+        private LapBroadcast(String lapId) {
+            this.lapId = lapId;
+        }
+
+        synchronized Claim claimProducer(boolean endWhenUnwatched) {
+            if (completed) {
+                return Claim.COMPLETED;
+            }
+            if (producing) {
+                return Claim.TAKEN;
+            }
+            producing = true;
+            this.endWhenUnwatched = endWhenUnwatched;
+            return Claim.CLAIMED;
+        }
+
+        /**
+         * Subscribe and claim the producer unless the lap has one
+         */
+        synchronized Claim watch(Subscriber subscriber, Long lastEventId) {
+            if (completed) {
+                broadcasts.remove(lapId, this);
+                return Claim.COMPLETED;
+            }
+            if (lastEventId != null) {
+                recentEvents.stream()
+                        .filter(event -> event.id() > lastEventId)
+                        .forEach(subscriber::offer);
+            }
+            subscribers.add(subscriber);
+            spectators.incrementAndGet();
+            subscriber.start(this);
+            log.debug("[lapId={}] Spectator joined, {} watching", lapId, subscribers.size());
+            return claimProducer(true);
+        }
+
+        synchronized boolean addCompletionListener(Runnable listener) {
+            if (completed || !producing) {
+                return false;
+            }
+            completionListeners.add(listener);
+            return true;
+        }
+
+        synchronized void unsubscribe(Subscriber subscriber) {
+            if (subscribers.remove(subscriber)) {
+                spectators.decrementAndGet();
+                log.debug("[lapId={}] Spectator left, {} watching", lapId, subscribers.size());
+            }
+        }
+
+        @Override
+        public synchronized void send(LapEvent event) throws IOException {
+            if (completed) {
+                return;
+            }
+            if (recentEvents.size() == bufferSize) {
+                recentEvents.removeFirst();
+            }
+            recentEvents.addLast(event);
+            for (Subscriber subscriber : List.copyOf(subscribers)) {
+                if (!subscriber.offer(event)) {
+                    log.warn("[lapId={}] Spectator is too slow, disconnecting it", lapId);
+                    unsubscribe(subscriber);
+                    subscriber.end();
+                }
+            }
+            if (endWhenUnwatched && subscribers.isEmpty()) {
+                throw new IOException("Nobody is watching lap " + lapId);
+            }
+        }
+
+        @Override
+        public void complete() {
+            List<Runnable> listeners;
+            synchronized (this) {
+                if (completed) {
+                    return;
+                }
+                completed = true;
+                broadcasts.remove(lapId, this);
+                subscribers.forEach(Subscriber::end);
+                spectators.addAndGet(-subscribers.size());
+                subscribers.clear();
+                listeners = List.copyOf(completionListeners);
+                completionListeners.clear();
+            }
+            // outside the lock, a listener may start the next producer of the lap
+            for (Runnable listener : listeners) {
+                try {
+                    listener.run();
+                } catch (RuntimeException e) {
+                    log.error("[lapId={}] Completion listener failed: {}", lapId, e.getMessage(), e);
+                }
+            }
+        }
+    }
+
+    /**
+     * A client watching a lap, with its own queue and sender thread
+     */
+    private final class Subscriber {
+
+        private final String lapId;
+        private final SseEmitter emitter;
+        // room for the recent events sent on resume on top of the events the client may fall behind
+        private final BlockingQueue<LapEvent> queue = new ArrayBlockingQueue<>(bufferSize + subscriberQueueCapacity);
+
+        private Subscriber(String lapId, SseEmitter emitter) {
+            this.lapId = lapId;
+            this.emitter = emitter;
+        }
+
+        void start(LapBroadcast broadcast) {
+            Runnable leave = () -> {
+                broadcast.unsubscribe(this);
+                end();
+            };
+            emitter.onCompletion(() -> {
+                log.info("SSE completed for lapId: {}", lapId);
+                leave.run();
+            });
+            emitter.onTimeout(() -> {
+                log.warn("SSE timeout for lapId: {}", lapId);
+                leave.run();
+            });
+            emitter.onError(ex -> {
+                log.error("SSE error for lapId {}: {}", lapId, ex.getMessage());
+                leave.run();
+            });
+            Thread.ofVirtual().name("sse-" + lapId).start(() -> sendEvents(leave));
+        }
+
+        boolean offer(LapEvent event) {
+            return queue.offer(event);
+        }
+
+        /**
+         * Let the sender complete the emitter; pending events are dropped
+         */
+        void end() {
+            queue.clear();
+            queue.offer(END);
+        }
+
+        private void sendEvents(Runnable leave) {
+            try {
+                while (true) {
+                    var event = queue.take();
+                    if (event == END) {
+                        emitter.complete();
+                        return;
+                    }
+                    emitter.send(SseEmitter.event()
+                            .id(String.valueOf(event.id()))
+                            .name(event.name())
+                            .data(event.data()));
+                }
+            } catch (IOException | IllegalStateException e) {
+                log.debug("[lapId={}] Failed to send SSE: {}", lapId, e.getMessage());
+                leave.run();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.github.jenkaby.chessaibattle.service;
+
+import com.github.jenkaby.chessaibattle.config.LapSchedulerProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs every lap on its own virtual thread.
+ * A lap waits for a slot of each of its models and then for a global slot before it starts, so the number of laps
+ * talking to a model is bounded by the model quota rather than by threads, and a lap queued behind a busy model
+ * does not hold a global slot. Replays are timed by
+ * {@link ReplayChessGameService} and do not run here.
+ */
+@Slf4j
+@Component
+public class LapScheduler implements DisposableBean {
+
+    private final LapSchedulerProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("lap-", 0).factory());
+    private final Semaphore lapPermits;
+    private final Map<String, Semaphore> modelPermits = new ConcurrentHashMap<>();
+    private final AtomicInteger queuedLaps = new AtomicInteger();
+    private final AtomicInteger activeLaps = new AtomicInteger();
+    private volatile boolean stopping;
+
+    public LapScheduler(LapSchedulerProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.lapPermits = new Semaphore(properties.getMaxConcurrentLaps(), true);
+        Gauge.builder("chess.laps.queued", queuedLaps, AtomicInteger::get)
+                .description("Laps waiting for a free slot")
+                .register(meterRegistry);
+        Gauge.builder("chess.laps.active", activeLaps, AtomicInteger::get)
+                .description("Laps being played")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Schedule a lap played by the given models
+     *
+     * @throws RejectedExecutionException if the scheduler is shutting down
+     */
+    public Future<?> submitLap(String lapId, Collection<String> models, Runnable lap) {
+        List<Semaphore> permits = new ArrayList<>();
+        // always acquired in the same order, so two laps never hold each other's model slot
+        new TreeSet<>(models).forEach(model -> permits.add(modelPermits(model)));
+        // the global slot comes last: a lap waiting for a busy model must not keep laps of idle models waiting
+        permits.add(lapPermits);
+
+        queuedLaps.incrementAndGet();
+        try {
+            return executor.submit(() -> runLap(lapId, permits, lap));
+        } catch (RejectedExecutionException e) {
+            queuedLaps.decrementAndGet();
+            throw e;
+        }
+    }
+
+    private void runLap(String lapId, List<Semaphore> permits, Runnable lap) {
+        int acquired = 0;
+        try {
+            for (Semaphore permit : permits) {
+                permit.acquire();
+                acquired++;
+            }
+            queuedLaps.decrementAndGet();
+            if (stopping) {
+                log.info("[lapId={}] Lap is not started, the scheduler is shutting down", lapId);
+                return;
+            }
+            activeLaps.incrementAndGet();
+            try {
+                log.debug("[lapId={}] Lap started, {} laps active", lapId, activeLaps.get());
+                lap.run();
+            } finally {
+                activeLaps.decrementAndGet();
+            }
+        } catch (InterruptedException e) {
+            queuedLaps.decrementAndGet();
+            Thread.currentThread().interrupt();
+            log.warn("[lapId={}] Lap was cancelled while waiting for a free slot", lapId);
+        } finally {
+            for (int i = acquired - 1; i >= 0; i--) {
+                permits.get(i).release();
+            }
+        }
+    }
+
+    private Semaphore modelPermits(String model) {
+        return modelPermits.computeIfAbsent(model, name -> {
+            int limit = properties.getModelLimits().getOrDefault(name, properties.getMaxConcurrentLapsPerModel());
+            Semaphore semaphore = new Semaphore(limit, true);
+            Gauge.builder("chess.laps.model.active", semaphore, s -> limit - s.availablePermits())
+                    .description("Laps being played by the model")
+                    .tag("model", name)
+                    .register(meterRegistry);
+            return semaphore;
+        });
+    }
+
+    /**
+     * Stop accepting laps, give running ones the shutdown timeout to finish and interrupt the rest.
+     * Movements made so far are written by the {@link com.github.jenkaby.chessaibattle.persistence.store.WriteBehindWriter}
+     * on shutdown, so an interrupted lap can be continued after a restart.
+     */
+    @Override
+    public void destroy() throws InterruptedException {
+        log.info("Shutting down lap scheduler: {} laps active, {} queued", activeLaps.get(), queuedLaps.get());
+        stopping = true;
+        executor.shutdown();
+        if (!executor.awaitTermination(properties.getShutdownTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+            log.warn("Interrupting {} laps still running after {}", activeLaps.get(), properties.getShutdownTimeout());
+            executor.shutdownNow();
+        }
+    }
+}
@@ -5,12 +5,14 @@ import com.github.jenkaby.chessaibattle.model.Player;
 import com.github.jenkaby.chessaibattle.persistence.repository.LapRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 @RequiredArgsConstructor
 @Slf4j
@@ -18,6 +20,10 @@ import java.util.Optional;
 public class LapService {
 
     private final LapRepository lapRepository;
+    @Value("${app.white-player.model}")
+    private final String whitePlayerModel;
+    @Value("${app.black-player.model}")
+    private final String blackPlayerModel;
 
     public List<LapDto> getPage(Integer page, Integer size) {
         return lapRepository.findAll(PageRequest.of(page, size, Sort.by("updatedAt").descending()))
@@ -33,4 +39,14 @@ public class LapService {
                 )
                 .toList();
     }
+
+    /**
+     * Models playing the lap; the configured models for a lap that has not been created yet
+     */
+    public Set<String> getModels(String lapId) {
+        return lapRepository.findDistinctByLapId(lapId)
+                .filter(lap -> lap.whitePlayerSettings() != null && lap.blackPlayerSettings() != null)
+                .map(lap -> Set.copyOf(List.of(lap.whitePlayerSettings().modelName(), lap.blackPlayerSettings().modelName())))
+                .orElseGet(() -> Set.copyOf(List.of(whitePlayerModel, blackPlayerModel)));
+    }
 }
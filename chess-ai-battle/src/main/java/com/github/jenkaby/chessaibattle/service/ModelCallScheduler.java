@@ -0,0 +1,119 @@
+package com.github.jenkaby.chessaibattle.service;
+
+import com.github.jenkaby.chessaibattle.config.ModelRateLimitProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientResponseException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * Admits model calls within the per-minute request and token budget of the model, see {@link ModelRateLimiter}.
+ * Calls rejected by the provider with a rate-limit error pause the model with a growing backoff and are repeated.
+ */
+@Slf4j
+@Component
+public class ModelCallScheduler {
+
+    private final ModelRateLimitProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, ModelRateLimiter> limiters = new ConcurrentHashMap<>();
+    private final Map<String, Timer> queueWaitTimers = new ConcurrentHashMap<>();
+
+    public ModelCallScheduler(ModelRateLimitProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Run the call when the model budget allows it
+     *
+     * @param lapId           lap the call is made for, calls of different laps are served round robin
+     * @param estimatedTokens tokens reserved before the call
+     * @param usedTokens      actual tokens of the result, 0 if unknown
+     */
+    public <T> T execute(String model, String lapId, int estimatedTokens, Supplier<T> call, ToIntFunction<T> usedTokens) {
+        ModelRateLimiter limiter = limiter(model);
+        for (int attempt = 0; ; attempt++) {
+            try {
+                long waited = limiter.acquire(lapId, estimatedTokens);
+                queueWaitTimers.get(model).record(waited, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for model " + model, e);
+            }
+
+            T result;
+            try {
+                result = call.get();
+            } catch (RuntimeException e) {
+                limiter.adjustTokens(-estimatedTokens);
+                if (!isRateLimited(e) || attempt >= properties.getMaxRetries()) {
+                    throw e;
+                }
+                log.warn("[lapId={}] Model {} is rate limited, attempt {} of {}: {}",
+                        lapId, model, attempt + 1, properties.getMaxRetries(), e.getMessage());
+                limiter.onRateLimited();
+                continue;
+            }
+            int used = usedTokens.applyAsInt(result);
+            if (used > 0) {
+                limiter.adjustTokens(used - estimatedTokens);
+            }
+            limiter.onSuccess();
+            return result;
+        }
+    }
+
+    /**
+     * Hold back calls to the model, e.g. when the provider reports an exhausted quota
+     */
+    public void pause(String model, Duration duration) {
+        log.info("Pausing calls to model {} for {}", model, duration);
+        limiter(model).pauseFor(duration.toNanos());
+    }
+
+    private ModelRateLimiter limiter(String model) {
+        return limiters.computeIfAbsent(model, name -> {
+            ModelRateLimitProperties.Limit limit = properties.getLimit(name);
+            ModelRateLimiter limiter = new ModelRateLimiter(limit.getRequestsPerMinute(), limit.getTokensPerMinute(),
+                    properties.getInitialBackoff().toNanos(), properties.getMaxBackoff().toNanos());
+            queueWaitTimers.put(name, Timer.builder("chess.model.queue.wait")
+                    .description("Time a model call waited for the rate limit")
+                    .tag("model", name)
+                    .register(meterRegistry));
+            Gauge.builder("chess.model.queue.size", limiter, ModelRateLimiter::getQueued)
+                    .description("Model calls waiting for the rate limit")
+                    .tag("model", name)
+                    .register(meterRegistry);
+            return limiter;
+        });
+    }
+
+    /**
+     * HTTP 429 anywhere in the cause chain, see {@link com.github.jenkaby.chessaibattle.config.ModelResponseErrorHandler}
+     */
+    private static boolean isRateLimited(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if ((cause instanceof RestClientResponseException restClientError && isTooManyRequests(restClientError.getStatusCode().value()))
+                    || (cause instanceof WebClientResponseException webClientError && isTooManyRequests(webClientError.getStatusCode().value()))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isTooManyRequests(int status) {
+        return status == HttpStatus.TOO_MANY_REQUESTS.value();
+    }
+}
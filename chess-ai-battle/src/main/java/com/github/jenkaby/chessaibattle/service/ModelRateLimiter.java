@@ -0,0 +1,188 @@
+package com.github.jenkaby.chessaibattle.service;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Token buckets of one model: requests and tokens per minute, refilled continuously.
+ * <p>
+ * Waiting calls are served round robin by lap, so a lap with many retries does not starve the others.
+ * Token costs are estimated up front and corrected with the actual usage once the call is done,
+ * which may leave the token bucket in debt until it refills. A budget of 0 is not limited.
+ */
+class ModelRateLimiter {
+
+    private static final long NANOS_PER_MINUTE = TimeUnit.MINUTES.toNanos(1);
+
+    private final double requestCapacity;
+    private final double tokenCapacity;
+    private final long initialBackoffNanos;
+    private final long maxBackoffNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    // waiting calls by lap, the first lap is served next and goes to the end when it has more calls
+    private final Map<String, Deque<Object>> waiting = new LinkedHashMap<>();
+    private volatile int queued;
+
+    private double requests;
+    private double tokens;
+    private long refilledAt;
+    private long pausedUntil;
+    private long backoffNanos;
+
+    ModelRateLimiter(int requestsPerMinute, int tokensPerMinute, long initialBackoffNanos, long maxBackoffNanos) {
+        this.requestCapacity = requestsPerMinute;
+        this.tokenCapacity = tokensPerMinute;
+        this.initialBackoffNanos = initialBackoffNanos;
+        this.maxBackoffNanos = maxBackoffNanos;
+        this.requests = requestCapacity;
+        this.tokens = tokenCapacity;
+        this.refilledAt = System.nanoTime();
+        this.pausedUntil = refilledAt;
+    }
+
+    /**
+     * Wait for the turn of the lap and take one request and the estimated tokens from the buckets
+     *
+     * @return nanoseconds spent waiting
+     */
+    long acquire(String lapId, int estimatedTokens) throws InterruptedException {
+        long start = System.nanoTime();
+        Object ticket = new Object();
+        double cost = Math.min(estimatedTokens, tokenCapacity);
+        lock.lock();
+        try {
+            waiting.computeIfAbsent(lapId, key -> new ArrayDeque<>()).add(ticket);
+            queued++;
+            try {
+                while (true) {
+                    long now = System.nanoTime();
+                    refill(now);
+                    if (!isNext(lapId, ticket)) {
+                        changed.await();
+                        continue;
+                    }
+                    long wait = Math.max(pausedUntil - now,
+                            Math.max(nanosUntil(requests, 1, requestCapacity), nanosUntil(tokens, cost, tokenCapacity)));
+                    if (wait <= 0) {
+                        requests -= 1;
+                        tokens -= cost;
+                        dequeue(lapId, ticket, true);
+                        return now - start;
+                    }
+                    changed.awaitNanos(wait);
+                }
+            } catch (InterruptedException e) {
+                dequeue(lapId, ticket, false);
+                throw e;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Correct the token bucket with the difference between the actual and the estimated usage;
+     * the bucket stays within one capacity of debt and never holds more than its capacity
+     */
+    void adjustTokens(int tokenDelta) {
+        lock.lock();
+        try {
+            tokens = Math.min(tokenCapacity, Math.max(-tokenCapacity, tokens - tokenDelta));
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * A call went through; the backoff is halved until it is gone
+     */
+    void onSuccess() {
+        lock.lock();
+        try {
+            backoffNanos = backoffNanos / 2 < initialBackoffNanos ? 0 : backoffNanos / 2;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * The provider rejected a call: pause the model for the backoff, doubling it on every rejection in a row
+     */
+    void onRateLimited() {
+        lock.lock();
+        try {
+            backoffNanos = backoffNanos == 0 ? initialBackoffNanos : Math.min(backoffNanos * 2, maxBackoffNanos);
+            pauseFor(backoffNanos);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Pause the model, e.g. until the reset reported in rate-limit headers
+     */
+    void pauseFor(long nanos) {
+        lock.lock();
+        try {
+            pausedUntil = Math.max(pausedUntil, System.nanoTime() + nanos);
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int getQueued() {
+        return queued;
+    }
+
+    private void refill(long now) {
+        long elapsed = now - refilledAt;
+        if (elapsed <= 0) {
+            return;
+        }
+        requests = Math.min(requestCapacity, requests + requestCapacity * elapsed / NANOS_PER_MINUTE);
+        tokens = Math.min(tokenCapacity, tokens + tokenCapacity * elapsed / NANOS_PER_MINUTE);
+        refilledAt = now;
+    }
+
+    private static long nanosUntil(double available, double needed, double perMinute) {
+        if (perMinute <= 0 || available >= needed) {
+            return 0;
+        }
+        return (long) Math.ceil((needed - available) * NANOS_PER_MINUTE / perMinute);
+    }
+
+    private boolean isNext(String lapId, Object ticket) {
+        Iterator<Map.Entry<String, Deque<Object>>> first = waiting.entrySet().iterator();
+        if (!first.hasNext()) {
+            return false;
+        }
+        Map.Entry<String, Deque<Object>> entry = first.next();
+        return entry.getKey().equals(lapId) && entry.getValue().peek() == ticket;
+    }
+
+    /**
+     * @param served true if the call got its turn, the lap then goes behind the other waiting laps
+     */
+    private void dequeue(String lapId, Object ticket, boolean served) {
+        Deque<Object> tickets = waiting.get(lapId);
+        tickets.remove(ticket);
+        if (tickets.isEmpty() || served) {
+            waiting.remove(lapId);
+            if (!tickets.isEmpty()) {
+                waiting.put(lapId, tickets);
+            }
+        }
+        queued--;
+        changed.signalAll();
+    }
+}
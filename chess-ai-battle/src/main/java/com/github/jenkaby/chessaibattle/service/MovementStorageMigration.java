@@ -0,0 +1,83 @@
+package com.github.jenkaby.chessaibattle.service;
+
+import com.github.jenkaby.chessaibattle.chess.Board;
+import com.github.jenkaby.chessaibattle.chess.BoardService;
+import com.github.jenkaby.chessaibattle.chess.MoveGenerator;
+import com.github.jenkaby.chessaibattle.chess.PackedMove;
+import com.github.jenkaby.chessaibattle.chess.movement.ChessMovement;
+import com.github.jenkaby.chessaibattle.persistence.entity.LapMoves;
+import com.github.jenkaby.chessaibattle.persistence.entity.Movement;
+import com.github.jenkaby.chessaibattle.persistence.repository.LapMovesRepository;
+import com.github.jenkaby.chessaibattle.persistence.repository.MovementRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Copies laps stored as one document per ply into packed {@code lap_moves} documents.
+ * Laps that are already packed are skipped, so the migration can be re-run; the source documents are kept.
+ * Laps with a movement that cannot be replayed are left unmigrated.
+ */
+@Slf4j
+@RequiredArgsConstructor
+@Service
+@ConditionalOnProperty(prefix = "app.features.movement-storage", name = "migrate-on-startup", havingValue = "true")
+// before the resumed tournaments play on from the migrated movements
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class MovementStorageMigration implements ApplicationRunner {
+
+    private final MongoTemplate mongoTemplate;
+    private final MovementRepository movementRepository;
+    private final LapMovesRepository lapMovesRepository;
+    private final BoardService boardService;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        List<String> lapIds = mongoTemplate.findDistinct("lapId", Movement.class, String.class);
+        log.info("Migrating movements of {} laps to packed format", lapIds.size());
+        int migrated = 0;
+        for (String lapId : lapIds) {
+            if (lapMovesRepository.existsByLapId(lapId)) {
+                continue;
+            }
+            try {
+                lapMovesRepository.save(pack(lapId, movementRepository.findAllByLapIdOrderByMovedAt(lapId)));
+                migrated++;
+            } catch (IllegalArgumentException e) {
+                log.warn("[lapId={}] Lap cannot be migrated to packed format: {}", lapId, e.getMessage());
+            }
+        }
+        log.info("Migrated {} of {} laps to packed format", migrated, lapIds.size());
+    }
+
+    private LapMoves pack(String lapId, List<Movement> movements) {
+        byte[] moves = new byte[movements.size() * PackedMove.BYTES];
+        Board board = new Board();
+        int[] buffer = new int[MoveGenerator.MAX_MOVES];
+        for (int i = 0; i < movements.size(); i++) {
+            Board before = board.copy();
+            ChessMovement chessMovement = boardService.applyMovement(board, movements.get(i), i + 1);
+            short packed = PackedMove.pack(chessMovement.getFrom().getIndex(),
+                    chessMovement.getTo().getIndex(), chessMovement.getPromotionType());
+            // a move the generator rejects could not be read back, the lap is left unmigrated
+            PackedMove.resolve(before, packed, buffer);
+            PackedMove.write(moves, i, packed);
+        }
+        return LapMoves.builder()
+                .lapId(lapId)
+                .plyCount(movements.size())
+                .moves(moves)
+                .reasons(movements.stream().map(Movement::reason).toList())
+                .movedAt(movements.stream().map(Movement::movedAt).toList())
+                .attempts(movements.stream().map(Movement::attempts).toList())
+                .build();
+    }
+}
@@ -5,7 +5,12 @@ import com.github.jenkaby.chessaibattle.model.Player;
 
 public interface PlayerService {
 
-    AiChessMovement move(String lapId);
+    /**
+     * Make the next movement of the lap and record it in the session
+     *
+     * @throws IllegalPlayerMoveException if the player has made a move that cannot be applied
+     */
+    AiChessMovement move(GameSession session);
 
     Player getPlayer();
 }
@@ -0,0 +1,22 @@
+package com.github.jenkaby.chessaibattle.service;
+
+import com.github.jenkaby.chessaibattle.model.Player;
+import lombok.RequiredArgsConstructor;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+
+/**
+ * AI players by color and model; a player is created on first use and shared by all laps of the model
+ */
+@RequiredArgsConstructor
+public class PlayerServiceRegistry {
+
+    private final BiFunction<Player, String, PlayerService> playerFactory;
+    private final Map<String, PlayerService> players = new ConcurrentHashMap<>();
+
+    public PlayerService get(Player player, String model) {
+        return players.computeIfAbsent(player.name() + ":" + model, key -> playerFactory.apply(player, model));
+    }
+}
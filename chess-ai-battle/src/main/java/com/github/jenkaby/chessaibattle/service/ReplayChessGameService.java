@@ -2,45 +2,360 @@ package com.github.jenkaby.chessaibattle.service;
 
 
 import com.github.jenkaby.chessaibattle.model.ChessMovementEvent;
+import com.github.jenkaby.chessaibattle.model.ReplayDto;
 import com.github.jenkaby.chessaibattle.persistence.entity.Movement;
-import com.github.jenkaby.chessaibattle.persistence.repository.MovementRepository;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.stereotype.Service;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Streams the movements of a lap to a client with a delay between them.
+ * <p>
+ * The delays are kept by one shared timer thread; a movement is sent on a virtual thread that lives only while
+ * the event is written, so a replay holds no thread while it waits and the number of replays is bounded by the
+ * connections rather than by threads. Every movement carries the position after it, taken from the frames of
+ * the lap, see {@link ReplayFrameCache}. A replay may cover a range of turns and may be paused, resumed, moved
+ * to another turn and sped up or slowed down while it runs.
+ */
 @Slf4j
-@RequiredArgsConstructor
 @Service
-public class ReplayChessGameService {
+public class ReplayChessGameService implements DisposableBean {
 
-    private final MovementRepository movementRepository;
+    private final ReplayFrameCache replayFrameCache;
+    private final Map<String, Replay> replays = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("replay-timer").daemon().factory());
+    private final ExecutorService senders = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("replay-", 0).factory());
 
-    public void emitMovementsForLap(SseEmitter emitter, String lapId, int delayMs) throws IOException, InterruptedException {
-        List<Movement> movements = movementRepository.findAllByLapIdOrderByMovedAt(lapId);
-        for (int i = 0; i < movements.size(); i++) {
-            int turn = i + 1;
-            sendEvent(emitter, turn, movements.get(i), delayMs);
+    public ReplayChessGameService(ReplayFrameCache replayFrameCache, MeterRegistry meterRegistry) {
+        this.replayFrameCache = replayFrameCache;
+        Gauge.builder("chess.replays.active", replays, Map::size)
+                .description("Replays being streamed")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Start streaming the movements of the lap; the first event, {@code replay}, tells the client the replay id
+     * to control it with and the position the replay starts from. The last one, {@code complete}, is sent when
+     * the replay has reached its last turn.
+     *
+     * @param delayMs  delay between two movements
+     * @param fromTurn first movement to send, starting with 1
+     * @param toTurn   last movement to send, null for the end of the lap
+     * @throws IllegalArgumentException   if the range is not valid
+     * @throws RejectedExecutionException if the application is shutting down
+     */
+    public ReplayDto startReplay(SseEmitter emitter, String lapId, int delayMs, int fromTurn, Integer toTurn) {
+        if (delayMs < 0) {
+            throw new IllegalArgumentException("Delay must not be negative: " + delayMs);
+        }
+        if (fromTurn < 1 || (toTurn != null && toTurn < fromTurn)) {
+            throw new IllegalArgumentException("Invalid range of turns: " + fromTurn + ".." + toTurn);
+        }
+        var replay = new Replay(UUID.randomUUID().toString(), lapId, emitter, delayMs, fromTurn, toTurn);
+        replays.put(replay.replayId, replay);
+        emitter.onCompletion(() -> {
+            log.info("SSE completed for lapId: {}", lapId);
+            replay.cancel();
+        });
+        emitter.onTimeout(() -> {
+            log.warn("SSE timeout for lapId: {}", lapId);
+            replay.cancel();
+        });
+        emitter.onError(ex -> {
+            log.error("SSE error for lapId {}: {}", lapId, ex.getMessage());
+            replay.cancel();
+        });
+        try {
+            senders.execute(replay::start);
+        } catch (RejectedExecutionException e) {
+            replays.remove(replay.replayId);
+            throw e;
+        }
+        return replay.toDto();
+    }
+
+    /**
+     * Pause, resume, move or change the speed of a replay
+     *
+     * @param paused  null to keep the replay paused or running
+     * @param delayMs null to keep the speed
+     * @param turn    continue after this turn, 0 for the initial position; null to keep the position
+     * @return empty if the lap has no such replay, e.g. it has finished
+     */
+    public Optional<ReplayDto> control(String lapId, String replayId, Boolean paused, Integer delayMs, Integer turn) {
+        if (delayMs != null && delayMs < 0) {
+            throw new IllegalArgumentException("Delay must not be negative: " + delayMs);
+        }
+        if (turn != null && turn < 0) {
+            throw new IllegalArgumentException("Turn must not be negative: " + turn);
+        }
+        var replay = replays.get(replayId);
+        if (replay == null || !replay.lapId.equals(lapId)) {
+            return Optional.empty();
         }
-        emitter.complete();
+        replay.control(paused, delayMs, turn);
+        return Optional.of(replay.toDto());
     }
 
-    private void sendEvent(SseEmitter emitter, int id, Movement movement, int delayMs) throws IOException, InterruptedException {
-        SseEmitter.SseEventBuilder event = SseEmitter.event()
-                .id(String.valueOf(id))
-                .data(ChessMovementEvent.builder()
-                        .turn(id)
-                        .lapId(movement.lapId())
-                        .movement(movement.notation())
-                        .player(movement.player())
-                        .reason(movement.reason())
-                        .build())
-                .name("move");
-        emitter.send(event);
-        log.debug("Sent SSE {} for lapId {}: player={}, movement={}", id, movement.lapId(), movement.player(), movement.notation());
-        Thread.sleep(delayMs);
+    /**
+     * Stop the timer and end the replays still running
+     */
+    @Override
+    public void destroy() {
+        log.info("Shutting down replays: {} active", replays.size());
+        timer.shutdownNow();
+        for (Replay replay : List.copyOf(replays.values())) {
+            replay.cancel();
+            replay.emitter.complete();
+        }
+        senders.shutdown();
+    }
+
+    /**
+     * A lap being replayed to one client.
+     * Every scheduled send carries the generation it was scheduled in; a pause, a move or a speed change starts
+     * a new generation, so a send that was already on its way when the replay changed does nothing. Only one
+     * movement is sent at a time, the next one is scheduled when it has been written.
+     */
+    private final class Replay {
+
+        private final String replayId;
+        private final String lapId;
+        private final SseEmitter emitter;
+        private final Integer requestedToTurn;
+        private ReplayFrames frames;
+        private int delayMs;
+        // movements shown so far, the next movement to send is turn + 1
+        private int turn;
+        private int toTurn;
+        private boolean paused;
+        private boolean finished;
+        private boolean sending;
+        private long generation;
+        private ScheduledFuture<?> pending;
+
+        private Replay(String replayId, String lapId, SseEmitter emitter, int delayMs, int fromTurn, Integer toTurn) {
+            this.replayId = replayId;
+            this.lapId = lapId;
+            this.emitter = emitter;
+            this.delayMs = delayMs;
+            this.turn = fromTurn - 1;
+            this.requestedToTurn = toTurn;
+            this.toTurn = toTurn == null ? Integer.MAX_VALUE : toTurn;
+        }
+
+        /**
+         * Load the frames and send the first movement, runs on a virtual thread
+         */
+        private void start() {
+            ReplayFrames loadedFrames;
+            try {
+                loadedFrames = replayFrameCache.getFrames(lapId);
+            } catch (RuntimeException e) {
+                log.error("Error during replaying the lap {}: {}", lapId, e.getMessage(), e);
+                finish();
+                emitter.completeWithError(e);
+                return;
+            }
+            synchronized (this) {
+                if (finished) {
+                    return;
+                }
+                frames = loadedFrames;
+                toTurn = Math.min(toTurn, frames.size());
+                turn = Math.min(turn, toTurn);
+            }
+            log.debug("[lapId={}] Replay {} started with {} movements", lapId, replayId, loadedFrames.size());
+            try {
+                emitter.send(SseEmitter.event()
+                        .name("replay")
+                        .data(toDto()));
+            } catch (IOException | IllegalStateException e) {
+                log.debug("[lapId={}] Replay {} is gone: {}", lapId, replayId, e.getMessage());
+                cancel();
+                return;
+            }
+            synchronized (this) {
+                if (!finished && !paused) {
+                    schedule(0);
+                }
+            }
+        }
+
+        private synchronized void control(Boolean paused, Integer delayMs, Integer turn) {
+            if (finished) {
+                return;
+            }
+            if (delayMs != null) {
+                this.delayMs = delayMs;
+            }
+            if (paused != null) {
+                this.paused = paused;
+            }
+            if (turn != null) {
+                // limited to the lap once the frames are loaded
+                this.turn = Math.min(turn, toTurn);
+            }
+            if (frames == null) {
+                // the first movement is scheduled once the frames are loaded
+                return;
+            }
+            // a waiting send is replaced, so a new speed applies right away and a pause stops the next send
+            if (pending != null) {
+                pending.cancel(false);
+                pending = null;
+            }
+            generation++;
+            if (!this.paused && !sending) {
+                schedule(turn != null ? 0 : this.delayMs);
+            }
+        }
+
+        private void schedule(long delay) {
+            long scheduledGeneration = ++generation;
+            try {
+                pending = timer.schedule(() -> sendNext(scheduledGeneration), delay, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                // the application is shutting down, the emitter is completed by destroy
+                pending = null;
+            }
+        }
+
+        /**
+         * Runs on the timer thread and hands the send over to a virtual thread
+         */
+        private void sendNext(long scheduledGeneration) {
+            try {
+                senders.execute(() -> send(scheduledGeneration));
+            } catch (RejectedExecutionException e) {
+                cancel();
+            }
+        }
+
+        private void send(long scheduledGeneration) {
+            Movement movement;
+            String fen;
+            int sentTurn;
+            synchronized (this) {
+                if (finished || paused || scheduledGeneration != generation) {
+                    return;
+                }
+                pending = null;
+                if (turn >= toTurn) {
+                    finish();
+                    movement = null;
+                    fen = null;
+                    sentTurn = turn;
+                } else {
+                    sentTurn = ++turn;
+                    movement = frames.movements().get(sentTurn - 1);
+                    fen = frames.fens().get(sentTurn);
+                    sending = true;
+                }
+            }
+            if (movement == null) {
+                complete(sentTurn);
+                return;
+            }
+            try {
+                emitter.send(SseEmitter.event()
+                        .id(String.valueOf(sentTurn))
+                        .data(ChessMovementEvent.builder()
+                                .turn(sentTurn)
+                                .lapId(movement.lapId())
+                                .movement(movement.notation())
+                                .player(movement.player())
+                                .reason(movement.reason())
+                                .fen(fen)
+                                .build())
+                        .name("move"));
+                log.debug("Sent SSE {} for lapId {}: player={}, movement={}", sentTurn, movement.lapId(), movement.player(), movement.notation());
+            } catch (IOException | IllegalStateException e) {
+                log.debug("[lapId={}] Replay {} is gone: {}", lapId, replayId, e.getMessage());
+                cancel();
+                return;
+            } finally {
+                synchronized (this) {
+                    sending = false;
+                }
+            }
+            boolean completed;
+            synchronized (this) {
+                if (finished || paused) {
+                    return;
+                }
+                completed = turn >= toTurn;
+                if (completed) {
+                    finish();
+                } else {
+                    // the delay or the turn may have changed while the movement was sent
+                    schedule(delayMs);
+                }
+            }
+            if (completed) {
+                complete(sentTurn);
+            }
+        }
+
+        /**
+         * Tell the client that the last turn of the replay has been sent and close the stream
+         */
+        private void complete(int lastTurn) {
+            try {
+                emitter.send(SseEmitter.event()
+                        .name("complete")
+                        .data(String.valueOf(lastTurn)));
+                emitter.complete();
+            } catch (IOException | IllegalStateException e) {
+                log.debug("[lapId={}] Replay {} is gone: {}", lapId, replayId, e.getMessage());
+            }
+        }
+
+        private synchronized void cancel() {
+            if (pending != null) {
+                pending.cancel(false);
+                pending = null;
+            }
+            finish();
+        }
+
+        private synchronized void finish() {
+            if (!finished) {
+                finished = true;
+                replays.remove(replayId, this);
+                log.debug("[lapId={}] Replay {} ended at turn {}", lapId, replayId, turn);
+            }
+        }
+
+        private synchronized ReplayDto toDto() {
+            return ReplayDto.builder()
+                    .replayId(replayId)
+                    .lapId(lapId)
+                    .turn(turn)
+                    .toTurn(frames == null && requestedToTurn == null ? 0 : toTurn)
+                    .totalTurns(frames == null ? 0 : frames.size())
+                    .fen(frames == null ? null : frames.fens().get(turn))
+                    .speedMs(delayMs)
+                    .paused(paused)
+                    .finished(finished)
+                    .build();
+        }
     }
 }
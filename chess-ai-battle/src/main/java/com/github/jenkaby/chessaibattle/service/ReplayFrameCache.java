@@ -0,0 +1,129 @@
+package com.github.jenkaby.chessaibattle.service;
+
+import com.github.jenkaby.chessaibattle.chess.Board;
+import com.github.jenkaby.chessaibattle.chess.BoardService;
+import com.github.jenkaby.chessaibattle.chess.Fen;
+import com.github.jenkaby.chessaibattle.model.GameStatus;
+import com.github.jenkaby.chessaibattle.persistence.entity.Lap;
+import com.github.jenkaby.chessaibattle.persistence.entity.Movement;
+import com.github.jenkaby.chessaibattle.persistence.repository.LapRepository;
+import com.github.jenkaby.chessaibattle.persistence.store.MovementStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Bounded LRU cache of the replay frames of finished laps.
+ * The frames of a lap are computed in one forward pass through its movements; replays of a finished lap,
+ * from any turn, share them. Frames of a lap still in play are computed for every replay and not cached.
+ * Concurrent replays of a lap that is not cached yet wait for the same pass.
+ */
+@Slf4j
+@Component
+public class ReplayFrameCache {
+
+    private final MovementStore movementStore;
+    private final LapRepository lapRepository;
+    private final BoardService boardService;
+    private final Map<String, CompletableFuture<ReplayFrames>> frames;
+
+    public ReplayFrameCache(MovementStore movementStore, LapRepository lapRepository, BoardService boardService,
+                            @Value("${app.replay-frames.max-laps:64}") int maxLaps) {
+        this.movementStore = movementStore;
+        this.lapRepository = lapRepository;
+        this.boardService = boardService;
+        this.frames = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CompletableFuture<ReplayFrames>> eldest) {
+                return size() > maxLaps;
+            }
+        };
+    }
+
+    /**
+     * Get the movements of the lap with the position after each of them
+     */
+    ReplayFrames getFrames(String lapId) {
+        CompletableFuture<ReplayFrames> future;
+        boolean computing = false;
+        synchronized (this) {
+            future = frames.get(lapId);
+            if (future == null) {
+                future = new CompletableFuture<>();
+                frames.put(lapId, future);
+                computing = true;
+            }
+        }
+        if (computing) {
+            compute(lapId, future);
+        }
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    private void compute(String lapId, CompletableFuture<ReplayFrames> future) {
+        boolean finished = false;
+        try {
+            // the status is read before the movements, so a lap that finishes meanwhile is not cached incomplete;
+            // the write-behind writer stores the final status of a lap only after its movements
+            finished = lapRepository.findDistinctByLapId(lapId)
+                    .map(Lap::status)
+                    .filter(status -> status == GameStatus.CHECKMATE || status == GameStatus.DRAW
+                            || status == GameStatus.FORFEIT)
+                    .isPresent();
+            future.complete(computeFrames(lapId, movementStore.findAllByLapId(lapId)));
+        } catch (RuntimeException e) {
+            finished = false;
+            future.completeExceptionally(e);
+        } finally {
+            if (!finished) {
+                synchronized (this) {
+                    frames.remove(lapId, future);
+                }
+            }
+        }
+    }
+
+    private ReplayFrames computeFrames(String lapId, List<Movement> movements) {
+        List<String> fens = new ArrayList<>(movements.size() + 1);
+        Board board = new Board();
+        fens.add(Fen.format(board));
+        for (int ply = 1; ply <= movements.size(); ply++) {
+            Movement movement = movements.get(ply - 1);
+            if (board != null) {
+                try {
+                    boardService.applyMovement(board, movement, ply);
+                } catch (IllegalArgumentException e) {
+                    board = recordedBoard(movement);
+                    log.warn("[lapId={}] Movement {} cannot be applied, {}", lapId, ply,
+                            board == null ? "no positions from here on" : "continuing from its recorded position");
+                }
+            }
+            fens.add(board == null ? null : Fen.format(board));
+        }
+        log.debug("[lapId={}] Computed {} replay frames", lapId, movements.size());
+        return new ReplayFrames(List.copyOf(movements), Collections.unmodifiableList(fens));
+    }
+
+    private static Board recordedBoard(Movement movement) {
+        if (movement.fen() == null) {
+            return null;
+        }
+        try {
+            return Fen.parse(movement.fen());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
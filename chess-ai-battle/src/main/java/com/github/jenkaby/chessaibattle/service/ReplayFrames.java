@@ -0,0 +1,19 @@
+package com.github.jenkaby.chessaibattle.service;
+
+import com.github.jenkaby.chessaibattle.persistence.entity.Movement;
+
+import java.util.List;
+
+/**
+ * Movements of a lap together with the position after each of them
+ *
+ * @param movements all movements of the lap ordered by time
+ * @param fens      FEN of the position after 0..movements.size() movements, the initial position first;
+ *                  null from the first movement that could not be applied
+ */
+record ReplayFrames(List<Movement> movements, List<String> fens) {
+
+    int size() {
+        return movements.size();
+    }
+}
@@ -0,0 +1,329 @@
+package com.github.jenkaby.chessaibattle.service;
+
+import com.github.jenkaby.chessaibattle.model.GameStatus;
+import com.github.jenkaby.chessaibattle.model.Player;
+import com.github.jenkaby.chessaibattle.model.TournamentDto;
+import com.github.jenkaby.chessaibattle.model.TournamentStanding;
+import com.github.jenkaby.chessaibattle.model.TournamentStatus;
+import com.github.jenkaby.chessaibattle.persistence.entity.Lap;
+import com.github.jenkaby.chessaibattle.persistence.entity.PlayerSettings;
+import com.github.jenkaby.chessaibattle.persistence.entity.Tournament;
+import com.github.jenkaby.chessaibattle.persistence.repository.LapRepository;
+import com.github.jenkaby.chessaibattle.persistence.repository.TournamentRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.prompt.PromptTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates round-robin tournaments between models and plays their laps headless through the {@link LapScheduler}.
+ * At most {@link Tournament#parallelLaps()} laps of a tournament are submitted at once; the next lap is
+ * submitted when one ends. A lap already being played by another loop, e.g. one opened by a spectator first,
+ * gives up its slots and is submitted again when that loop ends.
+ * Tournaments interrupted by a restart are resumed on startup with the laps that have not ended.
+ */
+@Slf4j
+@RequiredArgsConstructor
+@Service
+public class TournamentService implements ApplicationRunner {
+
+    private final TournamentRepository tournamentRepository;
+    private final LapRepository lapRepository;
+    private final GameService gameService;
+    private final LapScheduler lapScheduler;
+    private final LapEventHub lapEventHub;
+    private final PromptTemplate promptTemplate;
+    @Value("${app.tournament.parallel-laps:4}")
+    private final int defaultParallelLaps;
+
+    private final Map<String, RunningTournament> runningTournaments = new ConcurrentHashMap<>();
+
+    /**
+     * Create the laps of every pairing and start playing them
+     *
+     * @throws IllegalArgumentException if fewer than two distinct models or no games per pairing are given
+     */
+    public TournamentDto create(List<String> models, int gamesPerPairing, Integer parallelLaps) {
+        var distinctModels = models == null ? List.<String>of() : models.stream().distinct().toList();
+        if (distinctModels.size() < 2) {
+            throw new IllegalArgumentException("At least two distinct models are required");
+        }
+        if (gamesPerPairing < 1) {
+            throw new IllegalArgumentException("At least one game per pairing is required");
+        }
+        int parallel = parallelLaps == null ? defaultParallelLaps : parallelLaps;
+        if (parallel < 1) {
+            throw new IllegalArgumentException("At least one parallel lap is required");
+        }
+
+        var now = Instant.now();
+        var tournamentId = UUID.randomUUID().toString();
+        List<Lap> laps = new ArrayList<>();
+        for (int game = 0; game < gamesPerPairing; game++) {
+            for (int i = 0; i < distinctModels.size(); i++) {
+                for (int j = i + 1; j < distinctModels.size(); j++) {
+                    // colors alternate between the games of a pairing
+                    var white = game % 2 == 0 ? distinctModels.get(i) : distinctModels.get(j);
+                    var black = game % 2 == 0 ? distinctModels.get(j) : distinctModels.get(i);
+                    laps.add(Lap.builder()
+                            .lapId(UUID.randomUUID().toString())
+                            .tournamentId(tournamentId)
+                            .whitePlayerSettings(new PlayerSettings(white, promptTemplate.getTemplate()))
+                            .blackPlayerSettings(new PlayerSettings(black, promptTemplate.getTemplate()))
+                            .status(GameStatus.START)
+                            .startedAt(now)
+                            .updatedAt(now)
+                            .build());
+                }
+            }
+        }
+        lapRepository.saveAll(laps);
+
+        var tournament = tournamentRepository.save(Tournament.builder()
+                .tournamentId(tournamentId)
+                .models(distinctModels)
+                .gamesPerPairing(gamesPerPairing)
+                .parallelLaps(parallel)
+                .status(TournamentStatus.RUNNING)
+                .lapIds(laps.stream().map(Lap::lapId).toList())
+                .createdAt(now)
+                .updatedAt(now)
+                .build());
+        log.info("[tournamentId={}] Tournament of {} laps between {} created", tournamentId, laps.size(), distinctModels);
+
+        var running = new RunningTournament(tournamentId, new ConcurrentLinkedQueue<>(laps), new AtomicInteger(),
+                new AtomicBoolean());
+        runningTournaments.put(tournamentId, running);
+        for (int i = 0; i < parallel; i++) {
+            startNextLap(running);
+        }
+        return toDto(tournament, laps);
+    }
+
+    /**
+     * Resume the tournaments that were running when the application stopped
+     */
+    @Override
+    public void run(ApplicationArguments args) {
+        tournamentRepository.findAllByStatus(TournamentStatus.RUNNING).forEach(this::resume);
+    }
+
+    private void resume(Tournament tournament) {
+        var tournamentId = tournament.tournamentId();
+        // a lap interrupted by the restart is continued from its stored movements
+        var laps = lapRepository.findAllByTournamentId(tournamentId).stream()
+                .filter(lap -> lap.status() == GameStatus.START)
+                .sorted(Comparator.comparingInt(lap -> tournament.lapIds().indexOf(lap.lapId())))
+                .toList();
+        var running = new RunningTournament(tournamentId, new ConcurrentLinkedQueue<>(laps), new AtomicInteger(),
+                new AtomicBoolean());
+        if (runningTournaments.putIfAbsent(tournamentId, running) != null) {
+            return;
+        }
+        log.info("[tournamentId={}] Tournament resumed with {} laps to play", tournamentId, laps.size());
+        // with no laps left the first call finishes the tournament
+        for (int i = 0; i < Math.max(tournament.parallelLaps(), 1); i++) {
+            startNextLap(running);
+        }
+    }
+
+    public Optional<TournamentDto> getTournament(String tournamentId) {
+        return tournamentRepository.findDistinctByTournamentId(tournamentId)
+                .map(tournament -> toDto(tournament, lapRepository.findAllByTournamentId(tournamentId)));
+    }
+
+    /**
+     * Stop a running tournament: queued laps are dropped and laps being played stop after the current turn
+     */
+    public Optional<TournamentDto> cancel(String tournamentId) {
+        var tournament = tournamentRepository.findDistinctByTournamentId(tournamentId);
+        if (tournament.isEmpty()) {
+            return Optional.empty();
+        }
+        if (tournament.get().status() == TournamentStatus.RUNNING) {
+            tournamentRepository.save(tournament.get().toBuilder()
+                    .status(TournamentStatus.CANCELLED)
+                    .updatedAt(Instant.now())
+                    .build());
+            var running = runningTournaments.remove(tournamentId);
+            if (running != null) {
+                running.pendingLaps().clear();
+            }
+            lapRepository.findAllByTournamentId(tournamentId).stream()
+                    .filter(lap -> lap.status() == GameStatus.START || lap.status() == GameStatus.PAUSE)
+                    .forEach(lap -> gameService.updateGame(lap.lapId(), GameStatus.STOP));
+            log.info("[tournamentId={}] Tournament cancelled", tournamentId);
+        }
+        return getTournament(tournamentId);
+    }
+
+    private void startNextLap(RunningTournament tournament) {
+        var lap = tournament.pendingLaps().poll();
+        if (lap == null) {
+            if (tournament.activeLaps().get() == 0 && tournament.finished().compareAndSet(false, true)) {
+                finish(tournament.tournamentId());
+            }
+            return;
+        }
+        tournament.activeLaps().incrementAndGet();
+        submitLap(tournament, lap);
+    }
+
+    /**
+     * Submit a lap counted as active; it stops counting once it has ended or cannot be submitted
+     */
+    private void submitLap(RunningTournament tournament, Lap lap) {
+        var models = Set.copyOf(List.of(lap.whitePlayerSettings().modelName(), lap.blackPlayerSettings().modelName()));
+        try {
+            lapScheduler.submitLap(lap.lapId(), models, () -> {
+                boolean ended = true;
+                try {
+                    ended = playLap(tournament.tournamentId(), lap.lapId());
+                } finally {
+                    if (ended) {
+                        tournament.activeLaps().decrementAndGet();
+                        startNextLap(tournament);
+                    } else {
+                        // the slots are given up while the other loop plays the lap
+                        resubmitWhenPlayed(tournament, lap);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            tournament.activeLaps().decrementAndGet();
+            log.warn("[tournamentId={}] Lap {} is not scheduled, the scheduler is shutting down",
+                    tournament.tournamentId(), lap.lapId());
+        }
+    }
+
+    private void resubmitWhenPlayed(RunningTournament tournament, Lap lap) {
+        Runnable resubmit = () -> {
+            if (runningTournaments.get(tournament.tournamentId()) != tournament) {
+                // cancelled meanwhile
+                tournament.activeLaps().decrementAndGet();
+                return;
+            }
+            submitLap(tournament, lap);
+        };
+        if (!lapEventHub.whenCompleted(lap.lapId(), resubmit)) {
+            // the other loop has ended in between
+            resubmit.run();
+        }
+    }
+
+    /**
+     * @return false if the lap is being played by another loop, e.g. a spectator has opened the lap stream first
+     */
+    private boolean playLap(String tournamentId, String lapId) {
+        try {
+            var lap = gameService.playGame(lapId);
+            if (lap.status() == GameStatus.START) {
+                log.info("[tournamentId={}] Lap {} is being played by another loop, it is played on when that loop ends",
+                        tournamentId, lapId);
+                return false;
+            }
+            log.info("[tournamentId={}] Lap {} ended with status {}, winner: {}",
+                    tournamentId, lapId, lap.status(), lap.winner());
+        } catch (Exception e) {
+            log.error("[tournamentId={}] Lap {} is aborted: {}", tournamentId, lapId, e.getMessage(), e);
+            gameService.updateGame(lapId, GameStatus.STOP);
+        }
+        return true;
+    }
+
+    private void finish(String tournamentId) {
+        runningTournaments.remove(tournamentId);
+        tournamentRepository.findDistinctByTournamentId(tournamentId)
+                .filter(tournament -> tournament.status() == TournamentStatus.RUNNING)
+                .ifPresent(tournament -> {
+                    tournamentRepository.save(tournament.toBuilder()
+                            .status(TournamentStatus.FINISHED)
+                            .updatedAt(Instant.now())
+                            .build());
+                    log.info("[tournamentId={}] Tournament finished", tournamentId);
+                });
+    }
+
+    private static TournamentDto toDto(Tournament tournament, List<Lap> laps) {
+        Map<String, int[]> results = new LinkedHashMap<>();
+        tournament.models().forEach(model -> results.put(model, new int[3]));
+        int finished = 0;
+        int aborted = 0;
+        for (Lap lap : laps) {
+            if (lap.status() == GameStatus.STOP) {
+                aborted++;
+                continue;
+            }
+            if (lap.status() != GameStatus.CHECKMATE && lap.status() != GameStatus.DRAW
+                    && lap.status() != GameStatus.FORFEIT) {
+                continue;
+            }
+            finished++;
+            int[] white = results.computeIfAbsent(lap.whitePlayerSettings().modelName(), model -> new int[3]);
+            int[] black = results.computeIfAbsent(lap.blackPlayerSettings().modelName(), model -> new int[3]);
+            if (lap.winner() == null) {
+                white[1]++;
+                black[1]++;
+            } else {
+                (lap.winner() == Player.WHITE ? white : black)[0]++;
+                (lap.winner() == Player.WHITE ? black : white)[2]++;
+            }
+        }
+
+        var standings = results.entrySet().stream()
+                .map(entry -> {
+                    int[] result = entry.getValue();
+                    return TournamentStanding.builder()
+                            .model(entry.getKey())
+                            .wins(result[0])
+                            .draws(result[1])
+                            .losses(result[2])
+                            .played(result[0] + result[1] + result[2])
+                            .points(result[0] + result[1] / 2.0)
+                            .build();
+                })
+                .sorted(Comparator.comparingDouble(TournamentStanding::points).reversed()
+                        .thenComparing(Comparator.comparingInt(TournamentStanding::wins).reversed()))
+                .toList();
+
+        return TournamentDto.builder()
+                .tournamentId(tournament.tournamentId())
+                .status(tournament.status().name())
+                .models(tournament.models())
+                .gamesPerPairing(tournament.gamesPerPairing())
+                .parallelLaps(tournament.parallelLaps())
+                .totalLaps(laps.size())
+                .finishedLaps(finished)
+                .abortedLaps(aborted)
+                .standings(standings)
+                .createdAt(tournament.createdAt())
+                .updatedAt(tournament.updatedAt())
+                .build();
+    }
+
+    /**
+     * In-memory state of a tournament being played on this node
+     */
+    private record RunningTournament(String tournamentId, Queue<Lap> pendingLaps, AtomicInteger activeLaps,
+                                     AtomicBoolean finished) {
+    }
+}
@@ -0,0 +1,106 @@
+package com.github.jenkaby.chessaibattle.chess;
+
+import com.github.jenkaby.chessaibattle.chess.perft.Perft;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Node counts of well-known perft reference positions (see https://www.chessprogramming.org/Perft_Results).
+ * Together they cover castling, en passant, promotions, pins and checks.
+ * Depths above {@link #SHALLOW_DEPTH} take seconds to minutes and run with {@code ./gradlew :chess-ai-battle:perft}.
+ */
+class PerftTest {
+
+    private static final int SHALLOW_DEPTH = 3;
+
+    private static final Position[] POSITIONS = {
+            new Position("starting", Fen.STARTING_POSITION,
+                    20L, 400L, 8_902L, 197_281L, 4_865_609L),
+            new Position("kiwipete", "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+                    48L, 2_039L, 97_862L, 4_085_603L),
+            new Position("position 3", "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+                    14L, 191L, 2_812L, 43_238L, 674_624L),
+            new Position("position 4", "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+                    6L, 264L, 9_467L, 422_333L),
+            new Position("position 5", "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+                    44L, 1_486L, 62_379L, 2_103_487L),
+            new Position("position 6", "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10",
+                    46L, 2_079L, 89_890L, 3_894_594L),
+    };
+
+    static Stream<Arguments> shallowDepths() {
+        return depths(depth -> depth <= SHALLOW_DEPTH);
+    }
+
+    static Stream<Arguments> deepDepths() {
+        return depths(depth -> depth > SHALLOW_DEPTH);
+    }
+
+    @ParameterizedTest(name = "{0} depth {2}")
+    @MethodSource("shallowDepths")
+    void perftMatchesReferenceNodeCount(String name, String fen, int depth, long expectedNodes) {
+        assertEquals(expectedNodes, Perft.perft(Fen.parse(fen), depth));
+    }
+
+    @Tag("perft")
+    @ParameterizedTest(name = "{0} depth {2}")
+    @MethodSource("deepDepths")
+    void deepPerftMatchesReferenceNodeCount(String name, String fen, int depth, long expectedNodes) {
+        assertEquals(expectedNodes, Perft.perft(Fen.parse(fen), depth));
+    }
+
+    @ParameterizedTest(name = "{0} depth {2}")
+    @MethodSource("shallowDepths")
+    void divideSumsUpToReferenceNodeCount(String name, String fen, int depth, long expectedNodes) {
+        long nodes = Perft.divide(Fen.parse(fen), depth).values().stream()
+                .mapToLong(Long::longValue)
+                .sum();
+
+        assertEquals(expectedNodes, nodes);
+    }
+
+    @ParameterizedTest(name = "{0} depth {2}")
+    @MethodSource("shallowDepths")
+    void perftLeavesBoardUnchanged(String name, String fen, int depth, long expectedNodes) {
+        Board board = Fen.parse(fen);
+
+        Perft.perft(board, depth);
+
+        assertEquals(fen, Fen.format(board));
+    }
+
+    @Test
+    void parallelPerftMatchesReferenceNodeCount() {
+        Position kiwipete = POSITIONS[1];
+        try (ExecutorService executor = Executors.newFixedThreadPool(4)) {
+            assertEquals(kiwipete.expectedNodes()[SHALLOW_DEPTH - 1],
+                    Perft.run(Fen.parse(kiwipete.fen()), SHALLOW_DEPTH, executor).nodes());
+        }
+    }
+
+    private static Stream<Arguments> depths(IntPredicate included) {
+        return Arrays.stream(POSITIONS)
+                .flatMap(position -> IntStream.rangeClosed(1, position.expectedNodes().length)
+                        .filter(included)
+                        .mapToObj(depth -> Arguments.of(position.name(), position.fen(), depth,
+                                position.expectedNodes()[depth - 1])));
+    }
+
+    /**
+     * @param expectedNodes node counts by depth, starting with depth 1
+     */
+    private record Position(String name, String fen, long... expectedNodes) {
+    }
+}
@@ -8,6 +8,8 @@ export interface ChessMoveEvent {
   movement: string;
   player: 'WHITE' | 'BLACK';
   reason: string;
+  /** Position after the move, sent by replays */
+  fen?: string;
 }
 
 /** Emitted when the backend sends an `end_game` SSE event. */